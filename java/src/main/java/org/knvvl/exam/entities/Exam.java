@@ -34,6 +34,7 @@ public class Exam implements IdEntity
         Integer getFileSize();
         int getCertificate();
         String getLanguage();
+        Long getSeed();
     }
 
     @Id
@@ -55,13 +56,20 @@ public class Exam implements IdEntity
     @Column(name = "file_pdf")
     private byte[] filePdf;
 
+    /**
+     * Seed of the random generator that picked the questions; null for exams created before seeds were recorded
+     */
+    @Column(name = "seed")
+    private Long seed;
+
     public static EntityFields<Exam> getFields()
     {
         return new EntityFields<>(List.of(
             new EntityField.EntityFieldString<>("label", Exam::getLabel, Exam::setLabel),
             new EntityField.EntityFieldInteger<>("certificate", Exam::getCertificate, Exam::setCertificate),
             new EntityField.EntityFieldString<>("language", Exam::getLanguage, Exam::setLanguage),
-            new EntityField.EntityFieldBytes<>("filePdf", Exam::getFilePdf, Exam::setFilePdf)));
+            new EntityField.EntityFieldBytes<>("filePdf", Exam::getFilePdf, Exam::setFilePdf),
+            new EntityField.EntityFieldLong<>("seed", Exam::getSeed, Exam::setSeed)));
     }
 
     public Exam()
@@ -134,6 +142,16 @@ public class Exam implements IdEntity
         this.fileSize = filePdf.length;
     }
 
+    public Long getSeed()
+    {
+        return seed;
+    }
+
+    public void setSeed(Long seed)
+    {
+        this.seed = seed;
+    }
+
     @Override
     public String toString()
     {
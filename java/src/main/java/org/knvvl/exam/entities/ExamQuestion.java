@@ -66,7 +66,7 @@ public class ExamQuestion implements IdEntity
 
     public ExamQuestion(int exam, Question question, Topic topic, int questionIndex, String answer)
     {
-        this.id = exam * 1000 + questionIndex;
+        this.id = idFor(exam, questionIndex);
         this.exam = exam;
         this.question = question;
         this.topic = topic;
@@ -74,6 +74,14 @@ public class ExamQuestion implements IdEntity
         this.answer = answer;
     }
 
+    /**
+     * @return The id of the question at the given index in the exam; also used for inserts that bypass this entity
+     */
+    public static int idFor(int exam, int questionIndex)
+    {
+        return exam * 1000 + questionIndex;
+    }
+
     @Override
     public Integer getId()
     {
@@ -10,8 +10,8 @@ import static org.knvvl.exam.values.Languages.LANGUAGE_NL;
 import static jakarta.persistence.FetchType.LAZY;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
 
 import javax.annotation.Nullable;
 
@@ -45,6 +45,16 @@ public class Question implements IdEntity
     public static final List<String> TRANSLATABLE_FIELDS = List.of("question", "answerA", "answerB", "answerC", "answerD");
     public static final int DEFAULT_CERTIFICATE = 2;
 
+    /**
+     * For the {@link org.knvvl.exam.services.TranslationGraph}, without loading questions
+     */
+    public interface TranslationView
+    {
+        int getId();
+        Integer getTranslates();
+        String getLanguage();
+    }
+
     @Id
     @Column(name = "id")
     private Integer id;
@@ -328,6 +338,14 @@ public class Question implements IdEntity
     }
 
     public List<String> getTags(boolean asHtml)
+    {
+        return getTags(asHtml, Picture::getFilename);
+    }
+
+    /**
+     * @param pictureFilename To get the file name of the picture, e.g. from a {@link Picture.PictureView}, so the picture itself is not loaded
+     */
+    public List<String> getTags(boolean asHtml, Function<Picture, String> pictureFilename)
     {
         List<String> tags = new ArrayList<>();
         if (isAllowB2()) tags.add("B2");
@@ -341,46 +359,17 @@ public class Question implements IdEntity
         if (!StringUtils.isBlank(examGroup))
             tags.add(examGroup);
 
-        addPictureTag(asHtml, tags);
+        addPictureTag(asHtml, pictureFilename, tags);
         return tags;
     }
 
-    private void addPictureTag(boolean asHtml, List<String> tags)
+    private void addPictureTag(boolean asHtml, Function<Picture, String> pictureFilename, List<String> tags)
     {
         Picture picture = getPicture();
         if (picture != null)
             tags.add(asHtml
-                ? "<a target=\"_blank\" href=\"/api/pictures/" + picture.getId() + "\">" + picture.getFilename() + "</a>"
-                : picture.getFilename());
-    }
-
-    public boolean applySearch(String searchLower)
-    {
-        if (searchLower.isEmpty())
-        {
-            return true;
-        }
-        return tryMatch(String.valueOf(id), searchLower)
-            || tryMatch(question, searchLower)
-            || tryMatch(answerA, searchLower)
-            || tryMatch(answerB, searchLower)
-            || tryMatch(answerC, searchLower)
-            || tryMatch(answerD, searchLower)
-            || tryMatch(remarks, searchLower)
-            || tryMatchTags(searchLower);
-    }
-
-    private boolean tryMatchTags(String searchLower)
-    {
-        List<String> wordsLower = Arrays.asList(searchLower.split("\\s+"));
-        List<String> tagsLower = getTags(false).stream().map(String::toLowerCase).toList();
-        // Each word in the user's search phrase must match a keyword
-        return wordsLower.stream().allMatch(wordLower -> tagsLower.stream().anyMatch(tag -> tag.contains(wordLower)));
-    }
-
-    private boolean tryMatch(String value, String searchLower)
-    {
-        return value != null && value.toLowerCase().contains(searchLower);
+                ? "<a target=\"_blank\" href=\"/api/pictures/" + picture.getId() + "\">" + pictureFilename.apply(picture) + "</a>"
+                : pictureFilename.apply(picture));
     }
 
     public boolean allowForCertificate(int certificate)
@@ -0,0 +1,43 @@
+package org.knvvl.exam.entities;
+
+import org.knvvl.exam.meta.KnvvlEntity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * A text translated by ChatGPT before, by a hash of the text and everything else that went into the request
+ */
+@Entity
+@Table(name="t_translation_memory")
+public class TranslationMemoryEntry implements KnvvlEntity
+{
+    @Id
+    @Column(name = "hash")
+    private String hash;
+
+    @Column(name = "translated")
+    private String translated;
+
+    public TranslationMemoryEntry()
+    {
+    }
+
+    public TranslationMemoryEntry(String hash, String translated)
+    {
+        this.hash = hash;
+        this.translated = translated;
+    }
+
+    public String getHash()
+    {
+        return hash;
+    }
+
+    public String getTranslated()
+    {
+        return translated;
+    }
+}
@@ -55,6 +55,14 @@ public abstract class EntityField<T extends KnvvlEntity>
     public abstract void writeJson(T entity, JsonObject jsonObject);
     public abstract void readJson(T entity, JsonElement jsonElement);
 
+    /**
+     * Writes the same as {@link #writeJson(KnvvlEntity, JsonObject)}, streaming
+     */
+    public void writeJson(T entity, JsonWriter writer) throws IOException
+    {
+        exportJson(entity, writer);
+    }
+
     public void exportJson(T entity, JsonWriter writer) throws IOException
     {
         if (hasValue(entity))
@@ -336,6 +344,12 @@ public abstract class EntityField<T extends KnvvlEntity>
             jsonObject.addProperty(field, toStringValue(question));
         }
 
+        @Override
+        public void writeJson(T entity, JsonWriter writer) throws IOException
+        {
+            writer.name(field).value(toStringValue(entity));
+        }
+
         @Override
         public void readJson(T question, JsonElement jsonElement)
         {
@@ -419,6 +433,20 @@ public abstract class EntityField<T extends KnvvlEntity>
             }
         }
 
+        @Override
+        public void writeJson(T entity, JsonWriter writer) throws IOException
+        {
+            V idEntity = getIdEntity(entity);
+            if (idEntity != null)
+            {
+                if (idEntity instanceof LabeledEntity le)
+                {
+                    writer.name(field).value(le.getDisplayString());
+                }
+                writer.name(getValueField()).value(idEntity.getId());
+            }
+        }
+
         public V getIdEntity(T entity)
         {
             return getter.apply(entity);
@@ -1,5 +1,6 @@
 package org.knvvl.exam.repos;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.knvvl.exam.entities.Picture;
@@ -13,6 +14,8 @@ public interface PictureRepository extends JpaRepository<Picture, Integer>
 {
     List<Picture.PictureView> getPictureByOrderById();
 
+    List<Picture.PictureView> findByIdIn(Collection<Integer> ids);
+
     @Nullable
     Picture findTopByOrderByIdDesc();
 
@@ -1,19 +1,36 @@
 package org.knvvl.exam.repos;
 
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 import org.knvvl.exam.entities.Question;
 import org.knvvl.exam.entities.Topic;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface QuestionRepository extends JpaRepository<Question, Integer>
+public interface QuestionRepository extends JpaRepository<Question, Integer>, JpaSpecificationExecutor<Question>
 {
     Question findTopByOrderByIdDesc();
 
     List<Question> findByTopicOrderById(Topic topic);
 
     List<Question> findByLanguage(String language, Sort sort);
+
+    List<Question.TranslationView> findByTranslatesNotNull();
+
+    /**
+     * @return The questions, loaded in one query and in the order of the given ids; ids not found are left out
+     */
+    default List<Question> findAllByIdInOrder(List<Integer> ids)
+    {
+        Map<Integer, Question> questions = findAllById(ids).stream().collect(toMap(Question::getId, identity()));
+        return ids.stream().map(questions::get).filter(Objects::nonNull).toList();
+    }
 }
@@ -0,0 +1,82 @@
+package org.knvvl.exam.repos;
+
+import org.knvvl.exam.entities.ExamQuestion;
+import org.knvvl.exam.entities.Question;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.google.common.base.Strings;
+
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+
+/**
+ * Filters on questions, combined into a single query; see the composite indexes in indexes-question-filters.xml
+ */
+public final class QuestionSpecifications
+{
+    private QuestionSpecifications()
+    {
+    }
+
+    /**
+     * @param language Empty for all languages
+     * @param topicId 0 for all topics
+     * @param requirementId 0 for all requirements
+     * @param examId 0 for questions in any exam or none
+     * @param discuss Only questions to discuss
+     */
+    public static Specification<Question> filter(String language, int topicId, int requirementId, int examId, boolean discuss)
+    {
+        Specification<Question> specification = Specification.where(null);
+        if (!Strings.isNullOrEmpty(language))
+            specification = specification.and(hasLanguage(language));
+        if (topicId != 0)
+            specification = specification.and(hasTopic(topicId));
+        if (requirementId != 0)
+            specification = specification.and(hasRequirement(requirementId));
+        if (examId != 0)
+            specification = specification.and(inExam(examId));
+        if (discuss)
+            specification = specification.and(toDiscuss());
+        return specification;
+    }
+
+    public static Specification<Question> hasLanguage(String language)
+    {
+        return (root, query, builder) -> builder.equal(root.get("language"), language);
+    }
+
+    public static Specification<Question> hasTopic(int topicId)
+    {
+        return (root, query, builder) -> builder.equal(root.get("topic").get("id"), topicId);
+    }
+
+    public static Specification<Question> hasRequirement(int requirementId)
+    {
+        return (root, query, builder) -> builder.equal(root.get("requirement").get("id"), requirementId);
+    }
+
+    public static Specification<Question> inExam(int examId)
+    {
+        return (root, query, builder) -> {
+            Subquery<Integer> examQuestions = query.subquery(Integer.class);
+            Root<ExamQuestion> examQuestion = examQuestions.from(ExamQuestion.class);
+            examQuestions.select(examQuestion.get("question").<Integer>get("id"))
+                .where(builder.equal(examQuestion.get("exam"), examId));
+            return root.get("id").in(examQuestions);
+        };
+    }
+
+    /**
+     * For keyset pagination by id descending
+     */
+    public static Specification<Question> hasIdBelow(int id)
+    {
+        return (root, query, builder) -> builder.lessThan(root.<Integer>get("id"), id);
+    }
+
+    public static Specification<Question> toDiscuss()
+    {
+        return (root, query, builder) -> builder.isTrue(root.<Boolean>get("discuss"));
+    }
+}
@@ -0,0 +1,10 @@
+package org.knvvl.exam.repos;
+
+import org.knvvl.exam.entities.TranslationMemoryEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TranslationMemoryRepository extends JpaRepository<TranslationMemoryEntry, String>
+{
+}
@@ -1,21 +1,20 @@
 package org.knvvl.exam.rest;
 
 import static java.util.Comparator.comparing;
-import static java.util.function.Predicate.not;
 
 import static org.knvvl.exam.rest.QuestionRestService.GSON;
 import static org.knvvl.exam.services.ExamRepositories.SORT_BY_ID;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
 
-import java.util.List;
-import java.util.function.Predicate;
+import java.io.IOException;
 
-import org.knvvl.exam.entities.Question;
 import org.knvvl.exam.entities.Text;
 import org.knvvl.exam.entities.Topic;
-import org.knvvl.exam.repos.QuestionRepository;
+import org.knvvl.exam.meta.EntityField;
+import org.knvvl.exam.meta.EntityFields;
 import org.knvvl.exam.repos.TopicRepository;
+import org.knvvl.exam.services.QuestionCounter;
 import org.knvvl.exam.services.TextService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -28,16 +27,20 @@ import org.springframework.web.bind.annotation.RestController;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
+import jakarta.servlet.http.HttpServletResponse;
+
 @RestController
 @RequestMapping("api")
 public class EntitiesRestService
 {
+    private static final EntityFields<Topic> TOPIC_FIELDS = Topic.getFields();
+
     @Autowired
     private TextService textService;
     @Autowired
     private TopicRepository topicRepository;
     @Autowired
-    private QuestionRepository questionRepository;
+    private QuestionCounter questionCounter;
 
     @GetMapping(value = "/texts", produces = APPLICATION_JSON_VALUE)
     String getTexts()
@@ -72,25 +75,15 @@ public class EntitiesRestService
     }
 
     @GetMapping(value = "/topics", produces = APPLICATION_JSON_VALUE)
-    String getTopics()
-    {
-        List<Question> questions = questionRepository.findAll();
-        JsonArray all = new JsonArray();
-        for (Topic topic : topicRepository.findAll(SORT_BY_ID))
-        {
-            JsonObject json = new JsonObject();
-            json.addProperty("id", topic.getId());
-            json.addProperty("label", topic.getLabel());
-            json.addProperty("numQuestions", topic.getNumQuestions());
-            json.addProperty("nQuestions", activeQuestions(questions, q -> topic.equals(q.getTopic())));
-            all.add(json);
-        }
-        return GSON.toJson(all);
-    }
-
-    private static long activeQuestions(List<Question> questions, Predicate<Question> tester)
+    void getTopics(HttpServletResponse response) throws IOException
     {
-        return questions.stream().filter(not(Question::isIgnore)).filter(tester).count();
+        QuestionCounter.Counts counts = questionCounter.getCounts();
+        JsonResponse.writeArray(response, topicRepository.findAll(SORT_BY_ID), (writer, topic) -> {
+            writer.name("id").value(topic.getId());
+            for (EntityField<Topic> field : TOPIC_FIELDS.getFields())
+                field.writeJson(topic, writer);
+            writer.name("nQuestions").value(counts.getActiveForTopic(topic.getId()));
+        });
     }
 
 }
@@ -1,5 +1,7 @@
 package org.knvvl.exam.rest;
 
+import static java.util.stream.Collectors.toSet;
+
 import static org.knvvl.exam.rest.QuestionRestService.GSON;
 import static org.knvvl.exam.services.Utils.getAsString;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
@@ -11,8 +13,10 @@ import static org.springframework.http.MediaType.TEXT_HTML_VALUE;
 import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 
 import org.apache.commons.lang3.StringUtils;
@@ -21,7 +25,9 @@ import org.knvvl.exam.entities.ExamQuestion;
 import org.knvvl.exam.entities.Question;
 import org.knvvl.exam.entities.Topic;
 import org.knvvl.exam.repos.ExamAnswerRepository;
+import org.knvvl.exam.services.AltQuestionService;
 import org.knvvl.exam.services.ExamCreationService;
+import org.knvvl.exam.services.ExamCreationService.ExamSpec;
 import org.knvvl.exam.services.ExamRepositories;
 import org.knvvl.exam.services.ExamService;
 import org.knvvl.exam.services.ExamToDocumentService;
@@ -49,30 +55,32 @@ import jakarta.servlet.http.HttpServletResponse;
 @RequestMapping("api")
 public class ExamRestService
 {
+    /**
+     * Per certificate and language, for exams/batch; each exam is solved separately
+     */
+    static final int MAX_EXAMS_PER_LANGUAGE = 50;
+
     @Autowired private ExamRepositories examRepositories;
     @Autowired private ExamCreationService examCreationService;
     @Autowired private ExamService examService;
+    @Autowired private AltQuestionService altQuestionService;
     @Autowired private ExamToDocumentService examToDocumentService;
     @Autowired private QuestionRestService questionRestService;
     @Autowired private ExamAnswerRepository examAnswerRepository;
 
     @GetMapping(value = "/exams", produces = APPLICATION_JSON_VALUE)
-    String getExams()
+    void getExams(HttpServletResponse response) throws IOException
     {
-        JsonArray all = new JsonArray();
-        for (Exam.ExamView exam : examRepositories.getExamRepository().getExamByOrderByIdDesc()) // Newest first
-        {
+        JsonResponse.writeArray(response, examRepositories.getExamRepository().getExamByOrderByIdDesc(), (writer, exam) -> { // Newest first
             int examId = exam.getId();
-            JsonObject json = new JsonObject();
-            json.addProperty("id", examId);
-            json.addProperty("label", exam.getLabel());
-            json.addProperty("certificate", exam.getCertificate());
-            json.addProperty("language", exam.getLanguage());
-            json.addProperty("fileSize", exam.getFileSize());
-            json.addProperty("url", "/api/exams/" + examId);
-            all.add(json);
-        }
-        return GSON.toJson(all);
+            writer.name("id").value(examId);
+            writer.name("label").value(exam.getLabel());
+            writer.name("certificate").value(exam.getCertificate());
+            writer.name("language").value(exam.getLanguage());
+            writer.name("fileSize").value(exam.getFileSize());
+            writer.name("seed").value(exam.getSeed());
+            writer.name("url").value("/api/exams/" + examId);
+        });
     }
 
     @GetMapping(value = "/exams/{examId}", produces = APPLICATION_JSON_VALUE)
@@ -135,13 +143,65 @@ public class ExamRestService
         if (exam != null)
             return ResponseEntity.status(BAD_REQUEST).body("Exam with this name already exists");
 
+        List<String> relaxations;
         try {
-            examCreationService.createExam(label, Integer.parseInt(certificate), Languages.get(language));
+            String seed = json.get("seed");
+            relaxations = examCreationService.createExam(label, Integer.parseInt(certificate), Languages.get(language),
+                StringUtils.isBlank(seed) ? null : Long.valueOf(seed));
         }
         catch (RuntimeException e) {
             return ResponseEntity.status(INTERNAL_SERVER_ERROR).body("Error occurred: " + e.getMessage());
         }
-        return ResponseEntity.status(OK).body(null);
+        return ResponseEntity.status(OK).body(relaxations.isEmpty() ? null : String.join("\n", relaxations));
+    }
+
+    /**
+     * Body: {"label": "Sessie jan", "certificates": [2, 3], "languages": ["nl", "en"], "count": 20, "minimizeOverlap": true}
+     * creates exams labeled like "Sessie jan B2 nl 1".
+     */
+    @PostMapping(path = "exams/batch", consumes = APPLICATION_JSON_VALUE, produces = TEXT_PLAIN_VALUE)
+    public ResponseEntity<String> createExams(@RequestBody String body)
+    {
+        JsonObject form = GSON.fromJson(body, JsonObject.class);
+        String label = getAsString(form, "label");
+        if (StringUtils.isBlank(label))
+            return ResponseEntity.status(BAD_REQUEST).body("Label is mandatory");
+        JsonArray certificates = form.getAsJsonArray("certificates");
+        if (certificates == null || certificates.isEmpty())
+            return ResponseEntity.status(BAD_REQUEST).body("Certificates are mandatory");
+        JsonArray languages = form.getAsJsonArray("languages");
+        if (languages == null || languages.isEmpty())
+            return ResponseEntity.status(BAD_REQUEST).body("Languages are mandatory");
+        int count;
+        try {
+            count = Integer.parseInt(getAsString(form, "count"));
+        }
+        catch (NumberFormatException e) {
+            return ResponseEntity.status(BAD_REQUEST).body("Count must be a number");
+        }
+        if (count < 1 || count > MAX_EXAMS_PER_LANGUAGE)
+            return ResponseEntity.status(BAD_REQUEST).body("Count must be from 1 to " + MAX_EXAMS_PER_LANGUAGE);
+        boolean minimizeOverlap = form.has("minimizeOverlap") && form.get("minimizeOverlap").getAsBoolean();
+
+        List<ExamSpec> specs = new ArrayList<>();
+        for (var certificate : certificates)
+            for (var language : languages)
+                for (int i = 1; i <= count; i++)
+                {
+                    String examLabel = label + " B" + certificate.getAsInt() + " " + language.getAsString() + " " + i;
+                    if (examRepositories.getExamRepository().findByLabel(examLabel) != null)
+                        return ResponseEntity.status(BAD_REQUEST).body("Exam with this name already exists: " + examLabel);
+                    specs.add(new ExamSpec(examLabel, certificate.getAsInt(), Languages.get(language.getAsString())));
+                }
+
+        List<String> relaxations;
+        try {
+            relaxations = examCreationService.createExams(specs, minimizeOverlap);
+        }
+        catch (RuntimeException e) {
+            return ResponseEntity.status(INTERNAL_SERVER_ERROR).body("Error occurred: " + e.getMessage());
+        }
+        return ResponseEntity.status(OK).body(relaxations.isEmpty() ? null : String.join("\n", relaxations));
     }
 
     @PostMapping(path = "exams/{examId}", consumes = APPLICATION_JSON_VALUE, produces = TEXT_PLAIN_VALUE)
@@ -179,30 +239,23 @@ public class ExamRestService
     }
 
     @GetMapping(value = "/exams/{examId}/questions", produces = APPLICATION_JSON_VALUE)
-    String getQuestionsForExam(@PathVariable(name = "examId") int examId)
+    void getQuestionsForExam(@PathVariable(name = "examId") int examId, HttpServletResponse response) throws IOException
     {
-        JsonArray all = new JsonArray();
-        for (ExamQuestion examQuestion : examRepositories.getExamQuestionRepository().findByExamOrderByQuestionIndex(examId))
-        {
-            JsonObject json = questionRestService.getJsonQuestion(examQuestion.getQuestion(), false, false, false, false);
-            json.addProperty("examQuestionId", examQuestion.getId());
-            all.add(json);
-        }
-        return GSON.toJson(all);
+        List<ExamQuestion> examQuestions = examRepositories.getExamQuestionRepository().findByExamOrderByQuestionIndex(examId);
+        JsonResponse.writeArray(response, examQuestions, (writer, examQuestion) -> {
+            questionRestService.writeQuestion(writer, examQuestion.getQuestion(), false, false, false, false);
+            writer.name("examQuestionId").value(examQuestion.getId());
+        });
     }
 
     @GetMapping(path = "/exams/altquestions/{examQuestionId}", produces = APPLICATION_JSON_VALUE)
-    String getAltQuestions(@PathVariable String examQuestionId)
+    void getAltQuestions(@PathVariable String examQuestionId, HttpServletResponse response) throws IOException
     {
-        JsonArray all = new JsonArray();
         ExamQuestion examQuestion = examRepositories.getExamQuestionRepository().getReferenceById(Integer.parseInt(examQuestionId));
-        for (Question altQuestion : examService.getAltQuestions(examQuestion))
-        {
-            JsonObject json = questionRestService.getJsonQuestion(altQuestion, false, false, false, false);
-            json.addProperty("url", "/api/exams/altquestions/" + examQuestionId);
-            all.add(json);
-        }
-        return GSON.toJson(all);
+        JsonResponse.writeArray(response, altQuestionService.getAltQuestions(examQuestion), (writer, altQuestion) -> {
+            questionRestService.writeQuestion(writer, altQuestion, false, false, false, false);
+            writer.name("url").value("/api/exams/altquestions/" + examQuestionId);
+        });
     }
 
     @PostMapping(path = "/exams/altquestions/{examQuestionId}", consumes = TEXT_PLAIN_VALUE)
@@ -221,8 +274,50 @@ public class ExamRestService
             Exam exam = examRepositories.getExamRepository().getReferenceById(examId);
             String filename = exam.getLabel() + ".pdf";
             response.setHeader("Content-Disposition", "attachment; filename=" + filename);
-            byte[] bytes = examToDocumentService.generatePdf(exam, withQuestionId);
-            stream.write(bytes);
+            examToDocumentService.generatePdf(exam, withQuestionId, stream);
+            return ResponseEntity.status(OK).build();
+        }
+        catch (ExamException | IOException e)
+        {
+            return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(e.getMessage().getBytes());
+        }
+    }
+
+    /**
+     * PDFs of several exams in one ZIP: either the given ids, or all exams matching the (optional) filter.
+     */
+    @GetMapping(value = "/exams/zip", produces = "application/zip")
+    ResponseEntity<byte[]> generateZip(
+        @RequestParam(value = "ids", required = false) List<Integer> ids,
+        @RequestParam(value = "certificate", required = false) Integer certificate,
+        @RequestParam(value = "language", required = false) String language,
+        @RequestParam(value = "label", required = false) String label,
+        @RequestParam(value = "withQuestionId", defaultValue = "false") boolean withQuestionId,
+        HttpServletResponse response)
+    {
+        List<Exam.ExamView> exams = examRepositories.getExamRepository().getExamByOrderByIdDesc();
+        if (ids != null)
+        {
+            // Checked before the ZIP is streamed, after that the status cannot change anymore
+            Set<Integer> existing = exams.stream().map(Exam.ExamView::getId).collect(toSet());
+            List<Integer> missing = ids.stream().filter(id -> !existing.contains(id)).toList();
+            if (!missing.isEmpty())
+                return ResponseEntity.status(BAD_REQUEST).body(("Exams not found: " + missing).getBytes());
+        }
+        List<Integer> examIds = ids != null ? ids : exams.stream()
+            .filter(exam -> certificate == null || exam.getCertificate() == certificate)
+            .filter(exam -> language == null || language.equals(exam.getLanguage()))
+            .filter(exam -> label == null || StringUtils.containsIgnoreCase(exam.getLabel(), label))
+            .map(Exam.ExamView::getId)
+            .toList();
+        if (examIds.isEmpty())
+        {
+            return ResponseEntity.status(BAD_REQUEST).body("No exams found".getBytes());
+        }
+        try (var stream = response.getOutputStream())
+        {
+            response.setHeader("Content-Disposition", "attachment; filename=exams.zip");
+            examToDocumentService.generateZip(examIds, withQuestionId, stream);
             return ResponseEntity.status(OK).build();
         }
         catch (ExamException | IOException e)
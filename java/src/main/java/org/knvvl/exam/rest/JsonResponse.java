@@ -0,0 +1,90 @@
+package org.knvvl.exam.rest;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import com.google.gson.stream.JsonWriter;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Writes JSON field by field with a {@link JsonWriter}, straight to the response, instead of building a
+ * JsonObject tree and serializing that. Not pretty printed.
+ */
+final class JsonResponse
+{
+    private JsonResponse()
+    {
+    }
+
+    /**
+     * Writes the fields of one object, between beginObject and endObject
+     */
+    @FunctionalInterface
+    interface ObjectWriter<T>
+    {
+        void write(JsonWriter writer, T value) throws IOException;
+    }
+
+    /**
+     * @param fields Writes the fields of one element
+     */
+    static <T> void writeArray(HttpServletResponse response, Iterable<T> elements, ObjectWriter<T> fields) throws IOException
+    {
+        JsonWriter writer = createWriter(response);
+        writer.beginArray();
+        for (T element : elements)
+        {
+            writer.beginObject();
+            fields.write(writer, element);
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.flush();
+    }
+
+    static <T> void writeObject(HttpServletResponse response, T value, ObjectWriter<T> fields) throws IOException
+    {
+        JsonWriter writer = createWriter(response);
+        writeObject(writer, value, fields);
+        writer.flush();
+    }
+
+    /**
+     * For a response body that is not always JSON, like an error message
+     */
+    static <T> String toJson(T value, ObjectWriter<T> fields)
+    {
+        StringWriter out = new StringWriter();
+        try
+        {
+            JsonWriter writer = new JsonWriter(out);
+            writer.setSerializeNulls(false);
+            writeObject(writer, value, fields);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e); // Not from a StringWriter
+        }
+        return out.toString();
+    }
+
+    private static <T> void writeObject(JsonWriter writer, T value, ObjectWriter<T> fields) throws IOException
+    {
+        writer.beginObject();
+        fields.write(writer, value);
+        writer.endObject();
+    }
+
+    private static JsonWriter createWriter(HttpServletResponse response) throws IOException
+    {
+        response.setContentType(APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(UTF_8.name());
+        JsonWriter writer = new JsonWriter(response.getWriter());
+        writer.setSerializeNulls(false); // Like Gson.toJson
+        return writer;
+    }
+}
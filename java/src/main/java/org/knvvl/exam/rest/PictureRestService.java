@@ -1,6 +1,5 @@
 package org.knvvl.exam.rest;
 
-import static org.knvvl.exam.rest.QuestionRestService.GSON;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 import static org.springframework.http.HttpStatus.OK;
@@ -27,10 +26,8 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletResponse;
 import net.coobird.thumbnailator.Thumbnails;
 
 @RestController
@@ -44,19 +41,14 @@ public class PictureRestService
     private ExamRepositories examRepositories;
 
     @GetMapping(value = "/pictures", produces = APPLICATION_JSON_VALUE)
-    String getPictures()
+    void getPictures(HttpServletResponse response) throws IOException
     {
-        JsonArray all = new JsonArray();
-        for (Picture.PictureView picture : examRepositories.getPictureRepository().getPictureByOrderById())
-        {
-            JsonObject json = new JsonObject();
-            json.addProperty("id", picture.getId());
-            json.addProperty("filename", picture.getFilename());
-            json.addProperty("filesize", picture.getFileSize());
-            json.addProperty("url", "/api/pictures/" + picture.getId());
-            all.add(json);
-        }
-        return GSON.toJson(all);
+        JsonResponse.writeArray(response, examRepositories.getPictureRepository().getPictureByOrderById(), (writer, picture) -> {
+            writer.name("id").value(picture.getId());
+            writer.name("filename").value(picture.getFilename());
+            writer.name("filesize").value(picture.getFileSize());
+            writer.name("url").value("/api/pictures/" + picture.getId());
+        });
     }
 
     @GetMapping(value = "/pictures/{pictureId}", produces = IMAGE_JPEG_VALUE)
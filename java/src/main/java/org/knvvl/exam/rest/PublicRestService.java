@@ -1,16 +1,17 @@
 package org.knvvl.exam.rest;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 import static org.springframework.http.MediaType.IMAGE_JPEG_VALUE;
 import static org.springframework.http.MediaType.TEXT_HTML_VALUE;
 
+import java.io.IOException;
 import java.util.Map;
-import java.util.stream.Stream;
 
 import org.knvvl.exam.entities.Picture;
-import org.knvvl.exam.services.ExamCreationService;
 import org.knvvl.exam.services.ExamRepositories;
 import org.knvvl.exam.services.ExamToDocumentService;
+import org.knvvl.exam.services.PracticeExamPool;
 import org.knvvl.exam.values.Languages;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,32 +23,33 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("public")
 public class PublicRestService
 {
     @Autowired private ExamRepositories examRepositories;
-    @Autowired private ExamCreationService examCreationService;
     @Autowired private ExamToDocumentService examToDocumentService;
+    @Autowired private PracticeExamPool practiceExamPool;
 
+    /**
+     * Streams the page, so the browser starts rendering before all questions are written
+     */
     @GetMapping(value = "/practice/{topicId}", produces = TEXT_HTML_VALUE)
-    String createPracticeExam(@PathVariable("topicId") int topicId)
+    void createPracticeExam(@PathVariable("topicId") int topicId, HttpServletResponse response) throws IOException
     {
-        var questions = examCreationService.createPracticeExam(topicId, 10, Languages.LANGUAGE_NL);
-        return examToDocumentService.generateHtml(questions);
+        var questions = practiceExamPool.getPracticeExam(topicId, 10, Languages.LANGUAGE_NL);
+        response.setContentType(TEXT_HTML_VALUE);
+        response.setCharacterEncoding(UTF_8.name());
+        examToDocumentService.generateHtml(questions, response.getWriter());
     }
 
     @PostMapping(value = "/practice/{topicId}", produces = TEXT_HTML_VALUE)
     String checkPracticeExam(@PathVariable("topicId") int topicId,
         @RequestParam Map<String, String> params)
     {
-        String questionIds = params.get("questions");
-        var questions = Stream.of(questionIds.split(","))
-            .map(Integer::parseInt)
-            .map(examCreationService::getPracticeQuestion)
-            .toList();
-        return examToDocumentService.checkPracticeExam(topicId, questions, params);
+        return examToDocumentService.checkPracticeExam(params);
     }
 
     @GetMapping(value = "/pictures/{pictureId}", produces = IMAGE_JPEG_VALUE)
@@ -1,5 +1,8 @@
 package org.knvvl.exam.rest;
 
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
+
 import static org.knvvl.exam.services.ExamRepositories.SORT_BY_ID;
 import static org.knvvl.exam.values.Languages.LANGUAGE_NL;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
@@ -9,19 +12,27 @@ import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
 
+import java.io.IOException;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 
 import org.knvvl.exam.entities.Change;
+import org.knvvl.exam.entities.Picture;
+import org.knvvl.exam.entities.Picture.PictureView;
 import org.knvvl.exam.entities.Question;
 import org.knvvl.exam.meta.EntityField;
 import org.knvvl.exam.repos.ExamAnswerRepository;
 import org.knvvl.exam.services.ExamRepositories;
 import org.knvvl.exam.services.QuestionService;
+import org.knvvl.exam.services.TranslationJobService;
 import org.knvvl.exam.services.UserService;
 import org.knvvl.exam.values.ExamScores;
 import org.knvvl.exam.values.GivenAnswersForQuestion;
@@ -37,36 +48,51 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+
+import jakarta.annotation.Nullable;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("api")
 public class QuestionRestService
 {
-    static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    static final Gson GSON = new Gson();
     static final Map<Integer, String> userToFilterLanguage = new HashMap<>();
 
     @Autowired private ExamRepositories examRepositories;
     @Autowired private QuestionService questionService;
     @Autowired private UserService userService;
     @Autowired private ExamAnswerRepository examAnswerRepository;
+    @Autowired private TranslationJobService translationJobService;
 
+    /**
+     * Questions by id descending, streamed as a JSON array. With a page size, the next page starts before the id
+     * of the last question; a page with fewer questions than the page size is the last one.
+     * The questions of an exam are one page, in exam order.
+     */
     @GetMapping(value = "/questions", produces = "application/json")
-    String getQuestions(
+    void getQuestions(
         @RequestParam(name = "language", defaultValue = "") String language,
         @RequestParam(name = "topic", defaultValue = "0") Integer topicId,
         @RequestParam(name = "requirement", defaultValue = "0") Integer requirementId,
         @RequestParam(name = "exam", defaultValue = "0") Integer examId,
         @RequestParam(name = "search", defaultValue = "") String search,
-        @RequestParam(name = "discuss", defaultValue = "false") boolean discuss)
+        @RequestParam(name = "discuss", defaultValue = "false") boolean discuss,
+        @RequestParam(name = "before", defaultValue = "0") int beforeId,
+        @RequestParam(name = "pageSize", defaultValue = "0") int pageSize,
+        HttpServletResponse response) throws IOException
     {
-        JsonArray all = new JsonArray();
-        questionService.queryQuestions(SORT_BY_ID.descending(), handleFilterLanguage(language), topicId, requirementId, examId, search, discuss)
-            .map(q -> this.getJsonQuestion(q, true, false, true, false))
-            .forEach(all::add);
-        return GSON.toJson(all);
+        List<Question> questions = questionService.queryQuestionsPage(
+            handleFilterLanguage(language), topicId, requirementId, examId, search, discuss, beforeId, pageSize);
+        // Only the pictures of this page; their proxies know their id without being loaded
+        Set<Integer> pictureIds = questions.stream().map(Question::getPicture).filter(Objects::nonNull).map(Picture::getId).collect(toSet());
+        Map<Integer, String> pictureFilenames = pictureIds.isEmpty() ? Map.of()
+            : examRepositories.getPictureRepository().findByIdIn(pictureIds).stream().collect(toMap(PictureView::getId, PictureView::getFilename));
+        JsonResponse.writeArray(response, questions, (writer, question) ->
+            writeQuestion(writer, question, true, false, true, false, picture -> pictureFilenames.get(picture.getId())));
     }
 
     private String handleFilterLanguage(String language) {
@@ -89,13 +115,14 @@ public class QuestionRestService
     }
 
     @GetMapping(value = "/questions/{questionId}", produces = APPLICATION_JSON_VALUE)
-    String getQuestion(@PathVariable("questionId") int questionId)
+    void getQuestion(@PathVariable("questionId") int questionId, HttpServletResponse response) throws IOException
     {
         var question = examRepositories.getQuestionRepository().getReferenceById(questionId);
-        var json = getJsonQuestion(question, true, true, false, true);
         GivenAnswersForQuestion answers = new ExamScores(examAnswerRepository).addForQuestion(questionId).getForQuestion(questionId);
-        json.addProperty("scoresPerExam", answers.toStringPerExam(examRepositories.getExamRepository()));
-        return GSON.toJson(json);
+        JsonResponse.writeObject(response, question, (writer, q) -> {
+            writeQuestion(writer, q, true, true, false, true);
+            writer.name("scoresPerExam").value(answers.toStringPerExam(examRepositories.getExamRepository()));
+        });
     }
 
     @GetMapping(value = "/questions/{questionId}/translated", produces = APPLICATION_JSON_VALUE)
@@ -107,49 +134,102 @@ public class QuestionRestService
             return ResponseEntity.status(BAD_REQUEST).body(error.message());
         }
         var translated = questionService.createTranslated(question);
-        var json = getJsonQuestion(translated, true, true, false, true);
-        return ResponseEntity.status(OK).body(GSON.toJson(json));
+        return ResponseEntity.status(OK).body(JsonResponse.toJson(translated, (writer, q) -> writeQuestion(writer, q, true, true, false, true)));
     }
 
-    JsonObject getJsonQuestion(Question question, boolean addDetails, boolean addEntityIds, boolean addTranslatable, boolean addTranslates)
+    /**
+     * Starts translating all questions of an exam, or the given questions, in the background.
+     * The body is a JSON object with either "exam" or "questionIds".
+     */
+    @PostMapping(path = "questions/translate", consumes = APPLICATION_JSON_VALUE, produces = TEXT_PLAIN_VALUE)
+    ResponseEntity<String> translateQuestions(@RequestBody String body)
     {
-        JsonObject json = new JsonObject();
-        Optional.ofNullable(question.getId()).ifPresent(id -> json.addProperty("id", question.getId()));
-        for (EntityField entityField : questionService.getQuestionFields().getFields()) {
-            entityField.writeJson(question, json);
+        JsonObject form = GSON.fromJson(body, JsonObject.class);
+        int examId = form.has("exam") ? form.get("exam").getAsInt() : 0;
+        List<Integer> questionIds = new ArrayList<>();
+        if (form.has("questionIds"))
+            form.getAsJsonArray("questionIds").forEach(id -> questionIds.add(id.getAsInt()));
+        String message = translationJobService.start(examId, questionIds);
+        if (message != null)
+            return ResponseEntity.status(BAD_REQUEST).body(message);
+        return ResponseEntity.status(OK).body(null);
+    }
+
+    @GetMapping(value = "/questions/translate", produces = APPLICATION_JSON_VALUE)
+    void getTranslateStatus(HttpServletResponse response) throws IOException
+    {
+        JsonResponse.writeObject(response, translationJobService.getStatus(), (writer, status) -> {
+            writer.name("running").value(status.running());
+            writer.name("questions").value(status.questions());
+            writer.name("textsDone").value(status.textsDone());
+            writer.name("textsTotal").value(status.textsTotal());
+            writer.name("saved").value(status.saved());
+            writer.name("message").value(status.message());
+        });
+    }
+
+    /**
+     * Writes the fields of a question, so the caller can add its own
+     */
+    void writeQuestion(JsonWriter writer, Question question, boolean addDetails, boolean addEntityIds, boolean addTranslatable, boolean addTranslates)
+        throws IOException
+    {
+        writeQuestion(writer, question, addDetails, addEntityIds, addTranslatable, addTranslates, Picture::getFilename);
+    }
+
+    /**
+     * @param pictureFilename For lists: the file name from a {@link PictureView}, so pictures with their file data are not loaded
+     */
+    private void writeQuestion(JsonWriter writer, Question question, boolean addDetails, boolean addEntityIds, boolean addTranslatable, boolean addTranslates,
+        Function<Picture, String> pictureFilename) throws IOException
+    {
+        if (question.getId() != null)
+            writer.name("id").value(question.getId());
+        for (EntityField<Question> entityField : questionService.getQuestionFields().getFields()) {
+            if ("picture".equals(entityField.getField()))
+                writePicture(writer, question.getPicture(), pictureFilename);
+            else
+                entityField.writeJson(question, writer);
             if (!addDetails && "answer".equals(entityField.getField()))
-                return json;
+                return;
         }
         if (addEntityIds){
-            json.addProperty("topicId", question.getTopic().getId());
-            json.addProperty("requirementId", question.getRequirement().getId());
+            writer.name("topicId").value(question.getTopic().getId());
+            writer.name("requirementId").value(question.getRequirement().getId());
         }
-        json.addProperty("tagsHtml", String.join(", ", question.getTags(true)));
+        writer.name("tagsHtml").value(String.join(", ", question.getTags(true, pictureFilename)));
         var checkCanTranslate = questionService.checkCanTranslate(question);
         if (checkCanTranslate == null) { // Ok to translate
             if (addTranslatable) {
-                json.addProperty("translatable", true);
+                writer.name("translatable").value(true);
             }
         }
         else if (checkCanTranslate.questionIdTranslated() != null) { // Add translated question-id
-            json.addProperty("translated", checkCanTranslate.questionIdTranslated());
+            writer.name("translated").value(checkCanTranslate.questionIdTranslated());
         }
         if (addTranslates) {
-            addOriginalForTranslated(question, json);
+            writeOriginalForTranslated(writer, question);
+        }
+    }
+
+    private static void writePicture(JsonWriter writer, @Nullable Picture picture, Function<Picture, String> pictureFilename) throws IOException
+    {
+        if (picture != null) {
+            writer.name("picture").value(pictureFilename.apply(picture));
+            writer.name("pictureId").value(picture.getId());
         }
-        return json;
     }
 
-    private void addOriginalForTranslated(Question question, JsonObject json)
+    private void writeOriginalForTranslated(JsonWriter writer, Question question) throws IOException
     {
         Integer translates = question.getTranslates();
         if (translates != null && examRepositories.getQuestionRepository().existsById(translates)) {
             var original = examRepositories.getQuestionRepository().getReferenceById(translates);
-            json.addProperty("question_original", original.getQuestion());
-            json.addProperty("answerA_original", original.getAnswerA());
-            json.addProperty("answerB_original", original.getAnswerB());
-            json.addProperty("answerC_original", original.getAnswerC());
-            json.addProperty("answerD_original", original.getAnswerD());
+            writer.name("question_original").value(original.getQuestion());
+            writer.name("answerA_original").value(original.getAnswerA());
+            writer.name("answerB_original").value(original.getAnswerB());
+            writer.name("answerC_original").value(original.getAnswerC());
+            writer.name("answerD_original").value(original.getAnswerD());
         }
     }
 
@@ -1,20 +1,14 @@
 package org.knvvl.exam.rest;
 
-import static java.util.function.Predicate.not;
-
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.OK;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
 
-import java.util.List;
-import java.util.function.Predicate;
-
-import javax.annotation.Nonnull;
+import java.io.IOException;
 
-import org.knvvl.exam.entities.Question;
 import org.knvvl.exam.entities.Requirement;
-import org.knvvl.exam.repos.QuestionRepository;
+import org.knvvl.exam.services.QuestionCounter;
 import org.knvvl.exam.services.RequirementService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -27,61 +21,49 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("api")
 public class RequirementRestService
 {
-    static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    static final Gson GSON = new Gson();
 
     @Autowired
     private RequirementService requirementService;
 
     @Autowired
-    private QuestionRepository questionRepository;
+    private QuestionCounter questionCounter;
 
     @GetMapping(value = "/requirements", produces = APPLICATION_JSON_VALUE)
-    String getRequirements()
+    void getRequirements(HttpServletResponse response) throws IOException
     {
-        List<Question> questions = questionRepository.findAll();
-        JsonArray all = new JsonArray();
-        for (Requirement requirement : requirementService.getAll())
-        {
-            JsonObject json = getJson(requirement);
-            json.addProperty("nQuestions", activeQuestions(questions, q -> requirement.equals(q.getRequirement())));
-            all.add(json);
-        }
-        return GSON.toJson(all);
+        QuestionCounter.Counts counts = questionCounter.getCounts();
+        JsonResponse.writeArray(response, requirementService.getAll(), (writer, requirement) -> {
+            writeRequirement(writer, requirement);
+            writer.name("nQuestions").value(counts.getActiveForRequirement(requirement.getId()));
+        });
     }
 
-    @Nonnull
-    private static JsonObject getJson(Requirement requirement)
+    private static void writeRequirement(JsonWriter writer, Requirement requirement) throws IOException
     {
-        JsonObject json = new JsonObject();
-        json.addProperty("id", requirement.getId());
-        json.addProperty("label", requirement.getLabel());
-        json.addProperty("topic", requirement.getTopicLabel());
-        json.addProperty("topicId", requirement.getTopicId());
-        json.addProperty("domain", requirement.getDomain());
-        json.addProperty("domainTitle", requirement.getDomainTitle());
-        json.addProperty("subdomain", requirement.getSubdomain());
-        return json;
+        writer.name("id").value(requirement.getId());
+        writer.name("label").value(requirement.getLabel());
+        writer.name("topic").value(requirement.getTopicLabel());
+        writer.name("topicId").value(requirement.getTopicId());
+        writer.name("domain").value(requirement.getDomain());
+        writer.name("domainTitle").value(requirement.getDomainTitle());
+        writer.name("subdomain").value(requirement.getSubdomain());
     }
 
     @GetMapping(value = "/requirements/{requirementId}", produces = APPLICATION_JSON_VALUE)
-    String getQuestion(@PathVariable("requirementId") int requirementId)
+    void getQuestion(@PathVariable("requirementId") int requirementId, HttpServletResponse response) throws IOException
     {
         var requirement = requirementService.getById(requirementId);
-        var json = getJson(requirement);
-        return GSON.toJson(json);
-    }
-
-    private static long activeQuestions(List<Question> questions, Predicate<Question> tester)
-    {
-        return questions.stream().filter(not(Question::isIgnore)).filter(tester).count();
+        JsonResponse.writeObject(response, requirement, RequirementRestService::writeRequirement);
     }
 
     @PostMapping(path = "requirements", consumes = APPLICATION_JSON_VALUE, produces = TEXT_PLAIN_VALUE)
@@ -0,0 +1,265 @@
+package org.knvvl.exam.services;
+
+import static org.knvvl.exam.services.ExamService.MAX_FILTERS;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.knvvl.exam.entities.Exam;
+import org.knvvl.exam.entities.ExamQuestion;
+import org.knvvl.exam.entities.Question;
+import org.knvvl.exam.repos.ExamQuestionRepository;
+import org.knvvl.exam.repos.ExamRepository;
+import org.knvvl.exam.repos.QuestionRepository;
+import org.knvvl.exam.services.QuestionIndex.IndexedQuestion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Finds alternatives for a question in an exam. Per exam, a working set keeps the exam's question ids
+ * and, per topic, the remaining alternatives at each filter level. Swapping a question only recomputes its topic.
+ */
+@Service
+public class AltQuestionService implements QuestionIndex.Listener
+{
+    private static final int MIN_ALT_QUESTIONS = 10;
+    private static final int MAX_WORKING_SETS = 50;
+
+    @Autowired
+    private ExamRepository examRepository;
+    @Autowired
+    private ExamQuestionRepository examQuestionRepository;
+    @Autowired
+    private QuestionRepository questionRepository;
+    private final QuestionIndex questionIndex;
+
+    /**
+     * Exam id -> working set, of the exams used most recently
+     */
+    private final Map<Integer, WorkingSet> workingSets = new LinkedHashMap<>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, WorkingSet> eldest)
+        {
+            return size() > MAX_WORKING_SETS;
+        }
+    };
+    /**
+     * Counts changes to the working sets, so a working set loaded meanwhile is not kept
+     */
+    private int changes = 0;
+
+    @Autowired
+    public AltQuestionService(QuestionIndex questionIndex)
+    {
+        this.questionIndex = questionIndex;
+        questionIndex.addListener(this);
+    }
+
+    public List<Question> getAltQuestions(ExamQuestion examQuestion)
+    {
+        int examId = examQuestion.getExam();
+        List<Integer> altQuestionIds = getWorkingSet(examId).getAltQuestionIds(examQuestion.getId(), questionIndex.getSnapshot());
+        if (altQuestionIds == null) // Working set from before a restore, import or other change
+        {
+            examDeleted(examId);
+            altQuestionIds = getWorkingSet(examId).getAltQuestionIds(examQuestion.getId(), questionIndex.getSnapshot());
+        }
+        return altQuestionIds == null ? List.of() : questionRepository.findAllByIdInOrder(altQuestionIds);
+    }
+
+    /**
+     * To be called after a question in an exam was replaced by one of its alternatives.
+     */
+    public void questionSwapped(int examId, int examQuestionId, int altQuestionId)
+    {
+        WorkingSet workingSet;
+        synchronized (workingSets)
+        {
+            changes++;
+            workingSet = workingSets.get(examId);
+        }
+        if (workingSet != null)
+            workingSet.swap(examQuestionId, altQuestionId, questionIndex.getSnapshot());
+    }
+
+    public void examDeleted(int examId)
+    {
+        synchronized (workingSets)
+        {
+            changes++;
+            workingSets.remove(examId);
+        }
+    }
+
+    @Override
+    public void questionChanged(int questionId)
+    {
+        // Alternatives are recomputed for a new snapshot of the index, see TopicAlternatives
+    }
+
+    @Override
+    public void allQuestionsChanged()
+    {
+        synchronized (workingSets)
+        {
+            changes++;
+            workingSets.clear();
+        }
+    }
+
+    private WorkingSet getWorkingSet(int examId)
+    {
+        while (true)
+        {
+            int changesAtStart;
+            synchronized (workingSets)
+            {
+                WorkingSet workingSet = workingSets.get(examId);
+                if (workingSet != null)
+                    return workingSet;
+                changesAtStart = changes;
+            }
+            // Loaded outside the lock, so other exams need not wait
+            Exam exam = examRepository.getReferenceById(examId);
+            Map<Integer, int[]> examQuestions = new LinkedHashMap<>();
+            for (ExamQuestion examQuestion : examQuestionRepository.findByExamOrderByQuestionIndex(examId))
+                examQuestions.put(examQuestion.getId(), new int[] {examQuestion.getTopic().getId(), examQuestion.getQuestion().getId()});
+            synchronized (workingSets)
+            {
+                if (changes == changesAtStart) // Else a question may have been swapped while loading; load again
+                    return workingSets.computeIfAbsent(examId, id -> new WorkingSet(exam.getLanguage(), exam.getCertificate(), examQuestions));
+            }
+        }
+    }
+
+    private static class WorkingSet
+    {
+        final String language;
+        final int certificate;
+        /**
+         * Exam question id -> {topic id, question id}
+         */
+        final Map<Integer, int[]> examQuestions;
+        final Map<Integer, TopicAlternatives> alternativesPerTopic = new HashMap<>();
+
+        WorkingSet(String language, int certificate, Map<Integer, int[]> examQuestions)
+        {
+            this.language = language;
+            this.certificate = certificate;
+            this.examQuestions = examQuestions;
+        }
+
+        /**
+         * @return Null if the exam question is not in this working set
+         */
+        @Nullable
+        synchronized List<Integer> getAltQuestionIds(int examQuestionId, QuestionIndex.Snapshot index)
+        {
+            int[] topicAndQuestion = examQuestions.get(examQuestionId);
+            if (topicAndQuestion == null)
+                return null;
+            int topic = topicAndQuestion[0];
+            int questionId = topicAndQuestion[1];
+            TopicAlternatives alternatives = getAlternatives(topic, index);
+            CandidateSet candidates = alternatives.candidates;
+            BitSet altQuestions = alternatives.getAltQuestions();
+
+            // Set order: first questions with same requirement, then with same topic
+            List<Integer> altQuestionIds = new ArrayList<>();
+            altQuestionIds.add(questionId);
+            IndexedQuestion question = index.get(questionId);
+            if (question == null)
+                return altQuestionIds;
+            for (int i = 0; i < candidates.size(); i++)
+            {
+                if (candidates.get(i).requirement() == question.requirement())
+                    altQuestionIds.add(candidates.get(i).id());
+            }
+            altQuestions.stream().mapToObj(candidates::get)
+                .filter(q -> q.requirement() != question.requirement())
+                .forEach(q -> altQuestionIds.add(q.id()));
+            return altQuestionIds;
+        }
+
+        synchronized void swap(int examQuestionId, int altQuestionId, QuestionIndex.Snapshot index)
+        {
+            int[] topicAndQuestion = examQuestions.get(examQuestionId);
+            if (topicAndQuestion == null)
+                return;
+            topicAndQuestion[1] = altQuestionId;
+            int topic = topicAndQuestion[0];
+            alternativesPerTopic.put(topic, new TopicAlternatives(index, index.getCandidateSet(topic, language, certificate), getQuestionsForTopic(topic, index)));
+        }
+
+        private TopicAlternatives getAlternatives(int topic, QuestionIndex.Snapshot index)
+        {
+            TopicAlternatives alternatives = alternativesPerTopic.get(topic);
+            if (alternatives == null || alternatives.index != index) // Questions were changed
+            {
+                alternatives = new TopicAlternatives(index, index.getCandidateSet(topic, language, certificate), getQuestionsForTopic(topic, index));
+                alternativesPerTopic.put(topic, alternatives);
+            }
+            return alternatives;
+        }
+
+        private List<IndexedQuestion> getQuestionsForTopic(int topic, QuestionIndex.Snapshot index)
+        {
+            List<IndexedQuestion> questions = new ArrayList<>();
+            for (int[] topicAndQuestion : examQuestions.values())
+            {
+                IndexedQuestion question = topicAndQuestion[0] == topic ? index.get(topicAndQuestion[1]) : null;
+                if (question != null)
+                    questions.add(question);
+            }
+            return questions;
+        }
+    }
+
+    /**
+     * For one topic of an exam: per filter level the candidates that remain as alternatives,
+     * being neither similar to a question in the exam nor in the exam already.
+     */
+    private static class TopicAlternatives
+    {
+        final QuestionIndex.Snapshot index;
+        final CandidateSet candidates;
+        final BitSet[] remainingPerLevel = new BitSet[MAX_FILTERS + 1];
+
+        TopicAlternatives(QuestionIndex.Snapshot index, CandidateSet candidates, List<IndexedQuestion> questionsInExam)
+        {
+            this.index = index;
+            this.candidates = candidates;
+            for (int howManyFilters = 0; howManyFilters <= MAX_FILTERS; howManyFilters++)
+            {
+                BitSet remaining = candidates.all();
+                for (IndexedQuestion question : questionsInExam)
+                {
+                    candidates.removeSimilar(question, remaining, howManyFilters);
+                    int i = candidates.indexOf(question.id());
+                    if (i >= 0)
+                        remaining.clear(i);
+                }
+                remainingPerLevel[howManyFilters] = remaining;
+            }
+        }
+
+        /**
+         * As long as too few alt-questions remain, skip more filters of the similar-questions check
+         * @return Not to be modified
+         */
+        BitSet getAltQuestions()
+        {
+            int howManyFilters = MAX_FILTERS;
+            while (howManyFilters > 0 && remainingPerLevel[howManyFilters].cardinality() < MIN_ALT_QUESTIONS)
+                howManyFilters--;
+            return remainingPerLevel[howManyFilters];
+        }
+    }
+}
@@ -18,11 +18,13 @@ import jakarta.transaction.Transactional;
 public class BackupService
 {
     private final ExamRepositories examRepositories;
+    private final QuestionIndex questionIndex;
 
     @Autowired
-    public BackupService(ExamRepositories examRepositories)
+    public BackupService(ExamRepositories examRepositories, QuestionIndex questionIndex)
     {
         this.examRepositories = examRepositories;
+        this.questionIndex = questionIndex;
     }
 
     public String exportAll(Path file)
@@ -78,6 +80,7 @@ public class BackupService
         {
             throw new IllegalStateException("Cannot write to file " + file + ": " + e.getMessage(), e);
         }
+        questionIndex.invalidate();
         return b.toString();
     }
 
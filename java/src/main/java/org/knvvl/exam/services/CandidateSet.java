@@ -0,0 +1,159 @@
+package org.knvvl.exam.services;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.random.RandomGenerator;
+
+import org.knvvl.exam.services.QuestionIndex.IndexedQuestion;
+
+/**
+ * The candidate questions for one (topic, language, certificate), each with a dense index 0..n-1.
+ * Per picture, exam group and requirement a bitset holds the candidates sharing it,
+ * so excluding similar questions is a word-wise AND-NOT on a bitset of remaining candidates.
+ * Instances are immutable and shared; callers work on their own copy of {@link #all()}.
+ */
+public final class CandidateSet
+{
+    private static final BitSet EMPTY = new BitSet();
+
+    private final List<IndexedQuestion> candidates;
+    private final Map<Integer, Integer> indexById = new HashMap<>();
+    private final Map<Integer, BitSet> byPicture = new HashMap<>();
+    private final Map<String, BitSet> byExamGroup = new HashMap<>();
+    private final Map<Integer, BitSet> byRequirement = new HashMap<>();
+    private final BitSet withPicture = new BitSet();
+    private final BitSet withExamGroup = new BitSet();
+
+    CandidateSet(List<IndexedQuestion> candidates)
+    {
+        this.candidates = candidates;
+        for (int i = 0; i < candidates.size(); i++)
+        {
+            IndexedQuestion question = candidates.get(i);
+            indexById.put(question.id(), i);
+            if (question.picture() != null)
+            {
+                byPicture.computeIfAbsent(question.picture(), p -> new BitSet()).set(i);
+                withPicture.set(i);
+            }
+            if (!question.examGroup().isEmpty())
+            {
+                byExamGroup.computeIfAbsent(question.examGroup(), g -> new BitSet()).set(i);
+                withExamGroup.set(i);
+            }
+            byRequirement.computeIfAbsent(question.requirement(), r -> new BitSet()).set(i);
+        }
+    }
+
+    public int size()
+    {
+        return candidates.size();
+    }
+
+    public IndexedQuestion get(int index)
+    {
+        return candidates.get(index);
+    }
+
+    /**
+     * @return Dense index of the question, or -1 if it is not a candidate
+     */
+    public int indexOf(int questionId)
+    {
+        return indexById.getOrDefault(questionId, -1);
+    }
+
+    /**
+     * @return New bitset with all candidates set
+     */
+    public BitSet all()
+    {
+        BitSet all = new BitSet(candidates.size());
+        all.set(0, candidates.size());
+        return all;
+    }
+
+    /**
+     * @return New bitset with the candidates matching the filter set
+     */
+    public BitSet select(Predicate<IndexedQuestion> filter)
+    {
+        BitSet selected = new BitSet(candidates.size());
+        for (int i = 0; i < candidates.size(); i++)
+        {
+            if (filter.test(candidates.get(i)))
+                selected.set(i);
+        }
+        return selected;
+    }
+
+    /**
+     * @param question Question in the exam; need not be a candidate itself
+     * @param remaining Candidates to remove similar questions from
+     * @param howManyFilters 0, 1, 2, 3
+     */
+    public void removeSimilar(IndexedQuestion question, BitSet remaining, int howManyFilters)
+    {
+        // Use any given picture only once
+        if (howManyFilters > 0 && question.picture() != null)
+            remaining.andNot(byPicture.getOrDefault(question.picture(), EMPTY));
+        // Include at most one question in a given examGroup
+        if (howManyFilters > 1 && !question.examGroup().isEmpty())
+            remaining.andNot(byExamGroup.getOrDefault(question.examGroup(), EMPTY));
+        // Include one question per requirement
+        if (howManyFilters > 2)
+            remaining.andNot(byRequirement.getOrDefault(question.requirement(), EMPTY));
+    }
+
+    /**
+     * Upper bound for how many of the remaining candidates can be picked together under a single filter:
+     * questions sharing a picture/examGroup/requirement count as one.
+     * @param filter 1 (picture), 2 (exam group) or 3 (requirement)
+     */
+    public int countPickable(BitSet remaining, int filter)
+    {
+        return switch (filter)
+        {
+            case 1 -> countPickable(remaining, byPicture, withPicture);
+            case 2 -> countPickable(remaining, byExamGroup, withExamGroup);
+            case 3 -> countPickable(remaining, byRequirement, remaining); // Every question has a requirement
+            default -> remaining.cardinality();
+        };
+    }
+
+    private static int countPickable(BitSet remaining, Map<?, BitSet> groups, BitSet grouped)
+    {
+        BitSet ungrouped = (BitSet)remaining.clone();
+        ungrouped.andNot(grouped);
+        int count = ungrouped.cardinality();
+        for (BitSet group : groups.values())
+        {
+            if (group.intersects(remaining))
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return Index of a random set bit in remaining, or -1 if none is set
+     */
+    public static int pickRandom(BitSet remaining, RandomGenerator random)
+    {
+        int cardinality = remaining.cardinality();
+        if (cardinality == 0)
+            return -1;
+        int skip = random.nextInt(cardinality);
+        int index = remaining.nextSetBit(0);
+        for (int i = 0; i < skip; i++)
+            index = remaining.nextSetBit(index + 1);
+        return index;
+    }
+
+    public List<IndexedQuestion> toList(BitSet selected)
+    {
+        return selected.stream().mapToObj(candidates::get).toList();
+    }
+}
@@ -6,6 +6,8 @@ import static org.knvvl.exam.meta.Config.EXAM_LAST_CHANGED;
 import static com.google.common.base.Strings.isNullOrEmpty;
 
 import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.knvvl.exam.entities.Change.ChangedByAt;
 import org.knvvl.exam.entities.Text;
@@ -23,6 +25,7 @@ public class ChangeDetector
     private final TextRepository textRepository;
     private ChangedByAt lastChanged;
     private int numChanges = 0;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
 
     @Autowired
     public ChangeDetector(@Lazy UserService userService, @Lazy TextRepository textRepository)
@@ -37,6 +40,15 @@ public class ChangeDetector
         lastChanged = new ChangedByAt(userService.getCurrentUser());
         numChanges++;
         saveCurrentDateTime(EXAM_LAST_CHANGED);
+        listeners.forEach(Runnable::run);
+    }
+
+    /**
+     * @param listener Called on every change, e.g. to drop derived data
+     */
+    public void addListener(Runnable listener)
+    {
+        listeners.add(listener);
     }
 
     public record NeedsBackup(boolean needsBackup, String message) {}
@@ -1,37 +1,41 @@
 package org.knvvl.exam.services;
 
-import static java.util.function.Predicate.not;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
 
-import static org.apache.commons.lang3.Validate.isTrue;
 import static org.knvvl.exam.entities.Question.DEFAULT_CERTIFICATE;
 import static org.knvvl.exam.services.ExamRepositories.SORT_BY_ID;
-import static org.knvvl.exam.services.ExamService.MAX_FILTERS;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Function;
+import java.util.function.IntPredicate;
 import java.util.function.Predicate;
-import java.util.stream.Stream;
 
-import org.jetbrains.annotations.Nullable;
 import org.knvvl.exam.entities.Exam;
 import org.knvvl.exam.entities.Question;
 import org.knvvl.exam.entities.Topic;
 import org.knvvl.exam.repos.QuestionRepository;
 import org.knvvl.exam.repos.TopicRepository;
+import org.knvvl.exam.services.QuestionIndex.IndexedQuestion;
 import org.knvvl.exam.values.Languages.Language;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.Nullable;
 import jakarta.transaction.Transactional;
 
 @Service
 public class ExamCreationService
 {
-    private static final Random RANDOM = new Random();
-    private static final Predicate<Question> isPracticeQuestion = q -> q.getId() % 2 == 0;
+    static final IntPredicate isPracticeQuestion = id -> id % 2 == 0;
 
     @Autowired
     ExamService examService;
@@ -39,92 +43,143 @@ public class ExamCreationService
     TopicRepository topicRepository;
     @Autowired
     QuestionRepository questionRepository;
+    @Autowired
+    QuestionIndex questionIndex;
 
+    /**
+     * @param seed To reproduce an earlier exam, given the same questions; null for a new random seed
+     * @return Which filters had to be relaxed to compose the exam, per topic; empty if none
+     */
     @Transactional
-    public void createExam(String label, int certificate, Language language)
+    public List<String> createExam(String label, int certificate, Language language, @Nullable Long seed)
     {
-        List<Question> questions = new ExamCreator(certificate, language.id()).generateQuestions();
+        long examSeed = seed == null ? newSeed() : seed;
+        ExamCreator examCreator = new ExamCreator(certificate, language.id(), examSeed, questionIndex.getSnapshot(), topicRepository.findAll(SORT_BY_ID));
+        List<Question> questions = toQuestions(examCreator.generateQuestions());
         Exam exam = new Exam(label, certificate, language);
+        exam.setSeed(examSeed);
         examService.addExam(exam, questions);
+        return examCreator.relaxations;
     }
 
-    public Question getPracticeQuestion(int id)
+    private static long newSeed()
+    {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    public record ExamSpec(String label, int certificate, Language language) {}
+
+    /**
+     * Generate a series of exams in parallel, from one snapshot of the question index, and store them in one transaction.
+     * Each exam gets its own seed; only with minimizeOverlap the outcome also depends on the other exams of the series.
+     * @param minimizeOverlap Prefer questions not yet used in another exam of this series, as far as the filters allow
+     * @return Which filters had to be relaxed, per exam and topic; empty if none
+     */
+    public List<String> createExams(List<ExamSpec> specs, boolean minimizeOverlap)
     {
-        Question question = questionRepository.getReferenceById(id);
-        isTrue(isPracticeQuestion.test(question), "Question is not a practice question: " + id);
-        return question;
+        QuestionIndex.Snapshot index = questionIndex.getSnapshot();
+        List<Topic> topics = topicRepository.findAll(SORT_BY_ID);
+        Set<Integer> usedQuestionIds = minimizeOverlap ? ConcurrentHashMap.newKeySet() : null;
+        List<Long> seeds = specs.stream().map(spec -> newSeed()).toList();
+        List<ExamCreator> examCreators = new ArrayList<>();
+        for (int i = 0; i < specs.size(); i++)
+            examCreators.add(new ExamCreator(specs.get(i).certificate(), specs.get(i).language().id(), seeds.get(i), index, topics));
+        examCreators.forEach(c -> c.usedElsewhere = usedQuestionIds);
+
+        // Parallel streams run on the common fork-join pool
+        List<List<IndexedQuestion>> questions = examCreators.parallelStream().map(ExamCreator::generateQuestions).toList();
+
+        List<Exam> exams = new ArrayList<>();
+        for (int i = 0; i < specs.size(); i++)
+        {
+            ExamSpec spec = specs.get(i);
+            Exam exam = new Exam(spec.label(), spec.certificate(), spec.language());
+            exam.setSeed(seeds.get(i));
+            exams.add(exam);
+        }
+        examService.addExams(exams, questions);
+
+        List<String> relaxations = new ArrayList<>();
+        for (int i = 0; i < specs.size(); i++)
+        {
+            String label = specs.get(i).label();
+            examCreators.get(i).relaxations.forEach(r -> relaxations.add(label + ", " + r));
+        }
+        return relaxations;
     }
 
-    public List<Question> createPracticeExam(int topic, int nQuestions, Language language)
+    /**
+     * Picks the questions only, without loading them; see {@link PracticeExamPool}
+     * @return Question ids, empty if the topic does not exist
+     */
+    public List<Integer> createPracticeExamIds(int topic, int nQuestions, Language language)
     {
-        ExamCreator examCreator = new ExamCreator(DEFAULT_CERTIFICATE, language.id());
+        List<Topic> topics = topicRepository.findAll(SORT_BY_ID).stream().filter(t -> t.getId() == topic).toList();
+        ExamCreator examCreator = new ExamCreator(DEFAULT_CERTIFICATE, language.id(), newSeed(), questionIndex.getSnapshot(), topics);
         examCreator.numQuestions = t -> nQuestions;
-        examCreator.topicFilter = t -> t.getId() == topic;
-        examCreator.questionFilter = isPracticeQuestion; // Even questions only
-        return examCreator.generateQuestions();
+        examCreator.questionFilter = q -> isPracticeQuestion.test(q.id()); // Even questions only
+        return examCreator.generateQuestions().stream().map(IndexedQuestion::id).toList();
     }
 
-    private class ExamCreator
+    /**
+     * @param questions As picked from the question index
+     * @return The questions, in the same order
+     */
+    private List<Question> toQuestions(List<IndexedQuestion> questions)
+    {
+        List<Integer> questionIds = questions.stream().map(IndexedQuestion::id).toList();
+        Map<Integer, Question> byId = questionRepository.findAllById(questionIds).stream()
+            .collect(toMap(Question::getId, identity()));
+        return questionIds.stream().map(byId::get).toList();
+    }
+
+    /**
+     * Works on a snapshot of the question index only, so it can run outside of the request thread.
+     */
+    private static class ExamCreator
     {
         final int certificate;
         final String language;
-        Predicate<Topic> topicFilter = t -> true;
-        Predicate<Question> questionFilter = q -> true;
+        final SplittableRandom random;
+        final QuestionIndex.Snapshot index;
+        final List<Topic> topics;
+        Predicate<IndexedQuestion> questionFilter = q -> true;
         Function<Topic, Integer> numQuestions = Topic::getNumQuestions;
+        @Nullable Set<Integer> usedElsewhere;
+        final List<String> relaxations = new ArrayList<>();
 
-        private ExamCreator(int certificate, String language)
+        /**
+         * @param seed Same seed and same question index give the same exam
+         */
+        private ExamCreator(int certificate, String language, long seed, QuestionIndex.Snapshot index, List<Topic> topics)
         {
             this.certificate = certificate;
             this.language = language;
+            this.random = new SplittableRandom(seed);
+            this.index = index;
+            this.topics = topics;
         }
 
-        List<Question> generateQuestions()
+        List<IndexedQuestion> generateQuestions()
         {
-            return topicRepository.findAll(SORT_BY_ID).stream()
-                .filter(topicFilter)
+            return topics.stream()
                 .map(topic -> generateForTopic(topic))
                 .flatMap(Collection::stream)
                 .toList();
         }
 
-        private List<Question> generateForTopic(Topic topic)
+        private List<IndexedQuestion> generateForTopic(Topic topic)
         {
-            int howManyFilters = MAX_FILTERS;
-            var candidatesForTopic = filterForExam(questionRepository.findAll(), language, certificate, topic).filter(questionFilter).toList();
-            while (howManyFilters > 0) {
-                var examQuestionsForTopic = tryQuestionsForTopic(topic, candidatesForTopic, howManyFilters);
-                if (examQuestionsForTopic != null) {
-                    return examQuestionsForTopic;
-                }
-                howManyFilters--;
-            }
-            throw new IllegalStateException("Not enough questions for topic " + topic + ", certificate " + certificate);
+            CandidateSet candidatesForTopic = index.getCandidateSet(topic.getId(), language, certificate);
+            BitSet allowed = candidatesForTopic.select(questionFilter);
+            BitSet preferred = usedElsewhere == null ? null : candidatesForTopic.select(q -> !usedElsewhere.contains(q.id()));
+            ExamSolver.Result result = new ExamSolver(candidatesForTopic, allowed, preferred, random).solve(numQuestions.apply(topic));
+            if (result == null)
+                throw new IllegalStateException("Not enough questions for topic " + topic + ", certificate " + certificate);
+            result.relaxations().forEach(r -> relaxations.add(topic + ": " + r));
+            if (usedElsewhere != null)
+                result.questions().forEach(q -> usedElsewhere.add(q.id()));
+            return result.questions();
         }
-
-        @Nullable
-        private List<Question> tryQuestionsForTopic(Topic topic, List<Question> candidatesForTopic, int howManyFilters)
-        {
-            List<Question> remainingForTopic = new ArrayList<>(candidatesForTopic);
-            List<Question> examQuestionsForTopic = new ArrayList<>();
-            int n = numQuestions.apply(topic);
-            for (int i = 0; i < n; i++) {
-                if (remainingForTopic.isEmpty()) {
-                    return null;
-                }
-                var newQuestion = remainingForTopic.remove(RANDOM.nextInt(remainingForTopic.size()));
-                examQuestionsForTopic.add(newQuestion);
-                ExamService.removeSimilarQuestions(newQuestion, remainingForTopic, howManyFilters);
-            }
-            return examQuestionsForTopic;
-        }
-    }
-
-    public static Stream<Question> filterForExam(List<Question> questions, String language, int certificate, Topic topic)
-    {
-        return questions.stream()
-            .filter(not(Question::isIgnore))
-            .filter(topic::hasQuestion)
-            .filter(q -> q.getLanguage().equals(language))
-            .filter(q -> q.allowForCertificate(certificate));
     }
 }
@@ -18,15 +18,11 @@ import static com.itextpdf.text.Element.ALIGN_CENTER;
 import static com.itextpdf.text.Rectangle.NO_BORDER;
 
 import java.io.ByteArrayOutputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.function.Consumer;
 
-import org.apache.logging.log4j.util.Strings;
 import org.knvvl.exam.entities.Exam;
 import org.knvvl.exam.entities.ExamQuestion;
 import org.knvvl.exam.entities.Question;
@@ -40,7 +36,6 @@ import com.itextpdf.text.Document;
 import com.itextpdf.text.DocumentException;
 import com.itextpdf.text.Element;
 import com.itextpdf.text.Font;
-import com.itextpdf.text.FontFactory;
 import com.itextpdf.text.Image;
 import com.itextpdf.text.PageSize;
 import com.itextpdf.text.Paragraph;
@@ -56,9 +51,17 @@ class ExamGenerator
     static final String BOX_NAME = "page";
     static final int FULL_WIDTH = 100;
     static final int MARGIN = 52;
-    static final Path fontsDir = Path.of("fonts");
+    /**
+     * All texts that can end up in a generated PDF
+     */
+    static final List<Config> CONFIG_KEYS = List.of(
+        EXAM_TITLE_B2, EXAM_TITLE_B2_EN, EXAM_TITLE_B3, EXAM_TITLE_B3_EN,
+        EXAM_COVER_B2, EXAM_COVER_B2_EN, EXAM_COVER_B3, EXAM_COVER_B3_EN,
+        EXAM_BACK_TITLE, EXAM_BACK_TITLE_EN, EXAM_BACK_COVER, EXAM_BACK_COVER_EN,
+        Config.EXAM_TITLE_FONTNAME, Config.EXAM_TITLE_FONTSIZE, Config.EXAM_BODY_FONTNAME, Config.EXAM_BODY_FONTSIZE);
 
     private final TextService textService;
+    private final PictureRenditions pictureRenditions;
     private final Exam exam;
     private final boolean isEN;
     private final List<ExamQuestion> questions;
@@ -70,27 +73,38 @@ class ExamGenerator
     private boolean grayBackground = false;
     private Document document;
 
-    ExamGenerator(TextService textService, Exam exam, List<ExamQuestion> questions, boolean withQuestionId)
+    ExamGenerator(TextService textService, PictureRenditions pictureRenditions, FontManager.Fonts fonts, Exam exam, List<ExamQuestion> questions, boolean withQuestionId)
     {
         this.textService = textService;
+        this.pictureRenditions = pictureRenditions;
         this.exam = exam;
         this.isEN = Languages.LANGUAGE_EN.id().equals(exam.getLanguage());
         this.questions = questions;
         this.withQuestionId = withQuestionId;
-        this.titleFont = getTitleFont();
-        this.bodyFont = getBodyFont(Font.UNDEFINED);
-        this.captionFont = getBodyFont(Font.ITALIC);
+        this.titleFont = fonts.titleFont();
+        this.bodyFont = fonts.bodyFont();
+        this.captionFont = fonts.captionFont();
         this.counter = new HeaderFooterPageEvent();
     }
 
     byte[] generatePdf()
     {
-        registerFonts();
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        generatePdf(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Writes the PDF straight to the given stream; the PdfWriter flushes each page to it when the page is complete.
+     * @param outputStream Is not closed
+     */
+    void generatePdf(OutputStream outputStream)
+    {
         document = new Document(PageSize.A4);
         try
         {
             PdfWriter writer = PdfWriter.getInstance(document, outputStream);
+            writer.setCloseStream(false);
             Rectangle rect = new Rectangle(30, 30, 550, 800);
             writer.setBoxSize(BOX_NAME, rect);
             writer.setPageEvent(counter);
@@ -106,7 +120,6 @@ class ExamGenerator
         {
             throw new ExamException(e.getMessage());
         }
-        return outputStream.toByteArray();
     }
 
     private void addFrontCover()
@@ -229,83 +242,6 @@ class ExamGenerator
         cell.addElement(answers);
     }
 
-    private void registerFonts()
-    {
-        if (createFontsDir())
-        {
-            extractFont(Config.EXAM_TITLE_FONTNAME);
-            extractFont(Config.EXAM_BODY_FONTNAME);
-            int registered = Files.exists(fontsDir) ? FontFactory.registerDirectory(fontsDir.toFile().getAbsolutePath()) : 0;
-            System.out.println("Registered " + registered + " font(s) found in " + fontsDir);
-        }
-    }
-
-    private boolean createFontsDir()
-    {
-        try
-        {
-            if (!Files.exists(fontsDir))
-            {
-                Files.createDirectory(fontsDir);
-            }
-        }
-        catch (IOException e)
-        {
-            System.out.println("Cannot create fonts folder: " + e.getMessage());
-            return false;
-        }
-        return true;
-    }
-
-    private void extractFont(Config fontSetting)
-    {
-        String fontName = textService.get(fontSetting);
-        if (Strings.isBlank(fontName))
-        {
-            return;
-        }
-        String fontFileName = fontName + ".ttf";
-        Path fontFile = fontsDir.resolve(fontFileName);
-        if (Files.exists(fontFile))
-        {
-            return;
-        }
-        try (InputStream inputStream = getClass().getResourceAsStream("/fonts/" + fontFileName))
-        {
-            if (inputStream == null)
-            {
-                System.out.println("Could not read font resource: " + fontFileName);
-                return;
-            }
-            try (FileOutputStream outputStream = new FileOutputStream(fontFile.toFile()))
-            {
-                outputStream.write(inputStream.readAllBytes());
-                System.out.println("Extracted font resource: " + fontFileName);
-            }
-        }
-        catch (IOException e)
-        {
-            System.out.println("Could not extract font resource: " + fontFileName + ", " + e.getMessage());
-        }
-    }
-
-    private Font getTitleFont()
-    {
-        return FontFactory.getFont(
-            textService.get(Config.EXAM_TITLE_FONTNAME),
-            Integer.parseInt(textService.get(Config.EXAM_TITLE_FONTSIZE)),
-            Font.BOLD);
-    }
-
-    private Font getBodyFont(int style)
-    {
-        return FontFactory.getFont(
-            textService.get(Config.EXAM_BODY_FONTNAME),
-            FontFactory.defaultEncoding, FontFactory.defaultEmbedding,
-            Integer.parseInt(textService.get(Config.EXAM_BODY_FONTSIZE)),
-            style);
-    }
-
     private void addBlankCell(PdfPTable answers)
     {
         answers.addCell(getCell(" ", 0));
@@ -315,8 +251,8 @@ class ExamGenerator
     {
         try
         {
-            Image img = Image.getInstance(question.getPicture().getFileData());
-            float targetArea = 80000;
+            Image img = Image.getInstance(pictureRenditions.getRendition(question.getPicture()));
+            float targetArea = PictureRenditions.TARGET_AREA;
             float currentArea = img.getWidth() * img.getHeight();
             float factor = (float)Math.sqrt(targetArea / currentArea);
             float factorShrinkOnly = Math.min(1, factor); // Don't blow up low-res pictures
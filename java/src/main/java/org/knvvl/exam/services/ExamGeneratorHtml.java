@@ -1,20 +1,16 @@
 package org.knvvl.exam.services;
 
-import static java.util.Optional.ofNullable;
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.joining;
-
-import java.util.Collections;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 
-import org.knvvl.exam.entities.Picture;
 import org.knvvl.exam.entities.Question;
 import org.knvvl.exam.entities.Topic;
 import org.knvvl.exam.values.PassCriteria;
 
-import com.google.common.base.Strings;
+import jakarta.annotation.Nullable;
 
 class ExamGeneratorHtml
 {
@@ -241,94 +237,182 @@ class ExamGeneratorHtml
     private static final String SCORE_TOPIC = "<span style=\"color:{color}\">{topic}: {perc}% (min {threshold}%)</span><br/>";
     private static final String SCORE_OVERALL = "<span style=\"color:{color}\">Overall: {perc}% (min {threshold}%)</span>";
 
+    private static final HtmlTemplate HTML_TEMPLATE = HtmlTemplate.compile(HTML, "progressBar", "questionIds", "score", "questions", "submit");
+    /**
+     * The question template is split at the number, so the rest can be cached per question
+     */
+    private static final String NUMBER = "{number}";
+    private static final String QUESTION_START = QUESTION.substring(0, QUESTION.indexOf(NUMBER));
+    private static final HtmlTemplate QUESTION_TEMPLATE = HtmlTemplate.compile(QUESTION.substring(QUESTION.indexOf(NUMBER) + NUMBER.length()), "question", "picture", "answers");
+    private static final HtmlTemplate PICTURE_TEMPLATE = HtmlTemplate.compile(PICTURE, "picture");
+    private static final HtmlTemplate ANSWER_TEMPLATE = HtmlTemplate.compile(ANSWER, "style", "qid", "abcd", "checked", "answer");
+    private static final HtmlTemplate SCORE_TEMPLATE = HtmlTemplate.compile(SCORE, "perTopic", "overall");
+    private static final HtmlTemplate SCORE_TOPIC_TEMPLATE = HtmlTemplate.compile(SCORE_TOPIC, "color", "topic", "perc", "threshold");
+    private static final HtmlTemplate SCORE_OVERALL_TEMPLATE = HtmlTemplate.compile(SCORE_OVERALL, "color", "perc", "threshold");
+
+    @Nullable private final QuestionFragmentCache fragmentCache;
     private int qCounter = 1;
     private Topic currentTopic = null;
-    private Map<String, String> questionsToAnswers = Collections.emptyMap();
+    private int position = 0;
+    @Nullable private PracticeGrader.Grading grading;
     private PassCriteria passCriteria;
 
-    public String generateHtml(List<Question> questions)
+    /**
+     * @param fragmentCache To reuse the HTML of questions across practice exams; may be null
+     */
+    ExamGeneratorHtml(@Nullable QuestionFragmentCache fragmentCache)
     {
-        String questionIds = questions.stream().map(Question::getId).map(String::valueOf).collect(joining(","));
-        var questionsHtml = questions.stream().map(this::appendQuestion).collect(joining());
-        return HTML
-            .replace("{questionIds}", questionIds)
-            .replace("{questions}", questionsHtml)
-            .replace("{progressBar}", questionsToAnswers.isEmpty() ? PROGRESS : "")
-            .replace("{score}", calculateScore(questions))
-            .replace("{submit}", questionsToAnswers.isEmpty() ? SUBMIT : "");
+        this.fragmentCache = fragmentCache;
     }
 
-    private String calculateScore(List<Question> questions)
+    public String generateHtml(List<Question> questions)
     {
-        if (questions.isEmpty() || questionsToAnswers.isEmpty() || passCriteria == null) {
-            return "";
+        StringBuilder out = new StringBuilder(16384);
+        try
+        {
+            generateHtml(questions, out);
         }
-        StringBuilder b = new StringBuilder();
-        Map<Topic, List<Question>> perTopic = questions.stream().collect(groupingBy(Question::getTopic));
-        perTopic.forEach((topic, questionsForTopic) -> {
-            int percForTopic = getPercentageCorrect(questionsForTopic);
-            b.append(SCORE_TOPIC
-                .replace("{color}", percForTopic >= passCriteria.thresholdPerTopic() ? "green" : "red")
-                .replace("{topic}", topic.getLabel())
-                .replace("{threshold}", String.valueOf(passCriteria.thresholdPerTopic()))
-                .replace("{perc}", String.valueOf(percForTopic)));
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e); // Not thrown by StringBuilder
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the page part by part; when writing to a response, the browser can start rendering
+     * with the header and progress bar while the questions are still being written.
+     * @param out Is flushed after the header, not closed
+     */
+    public void generateHtml(List<Question> questions, Appendable out) throws IOException
+    {
+        boolean practice = grading == null;
+        HTML_TEMPLATE.render(out, placeholder -> {
+            switch (placeholder)
+            {
+                case 0 -> {
+                    out.append(practice ? PROGRESS : "");
+                    if (out instanceof Flushable flushable)
+                        flushable.flush();
+                }
+                case 1 -> appendQuestionIds(questions, out);
+                case 2 -> appendScore(questions, out);
+                case 3 -> {
+                    for (Question question : questions)
+                        appendQuestion(question, out);
+                }
+                case 4 -> out.append(practice ? SUBMIT : "");
+                default -> throw new IllegalArgumentException();
+            }
         });
-        int percOverall = getPercentageCorrect(questions);
-        String scoreOverall = SCORE_OVERALL
-            .replace("{color}", percOverall >= passCriteria.thresholdOverall() ? "green" : "red")
-            .replace("{threshold}", String.valueOf(passCriteria.thresholdOverall()))
-            .replace("{perc}", String.valueOf(percOverall));
+    }
 
-        return SCORE
-            .replace("{perTopic}", b.toString())
-            .replace("{overall}", scoreOverall);
+    private static void appendQuestionIds(List<Question> questions, Appendable out) throws IOException
+    {
+        for (int i = 0; i < questions.size(); i++)
+        {
+            if (i > 0)
+                out.append(',');
+            out.append(String.valueOf(questions.get(i).getId()));
+        }
     }
 
-    private int getPercentageCorrect(List<Question> questions)
+    private void appendScore(List<Question> questions, Appendable out) throws IOException
     {
-        long nCorrect = questions.stream()
-            .filter(q -> Objects.equals(q.getAnswer(), questionsToAnswers.get(String.valueOf(q.getId()))))
-            .count();
-        return (int) (100 * nCorrect / questions.size());
+        if (questions.isEmpty() || grading == null || passCriteria == null) {
+            return;
+        }
+        String[] topicLabels = new String[grading.topicIds().length];
+        for (int i = 0; i < questions.size(); i++)
+            topicLabels[grading.topicOfQuestion()[i]] = questions.get(i).getTopic().getLabel();
+        StringBuilder b = new StringBuilder();
+        for (int topicIndex = 0; topicIndex < topicLabels.length; topicIndex++)
+        {
+            int percForTopic = grading.percentageForTopic(topicIndex);
+            SCORE_TOPIC_TEMPLATE.render(b,
+                percForTopic >= passCriteria.thresholdPerTopic() ? "green" : "red",
+                topicLabels[topicIndex],
+                String.valueOf(percForTopic),
+                String.valueOf(passCriteria.thresholdPerTopic()));
+        }
+        int percOverall = grading.percentageOverall();
+        String scoreOverall = SCORE_OVERALL_TEMPLATE.render(
+            percOverall >= passCriteria.thresholdOverall() ? "green" : "red",
+            String.valueOf(percOverall),
+            String.valueOf(passCriteria.thresholdOverall()));
+        out.append(SCORE_TEMPLATE.render(b.toString(), scoreOverall));
     }
 
-    public String checkPracticeExam(List<Question> questions, Map<String, String> questionsToAnswers, PassCriteria passCriteria)
+    /**
+     * @param questions In the order of the grading
+     */
+    public String checkPracticeExam(List<Question> questions, PracticeGrader.Grading grading, PassCriteria passCriteria)
     {
-        this.questionsToAnswers = questionsToAnswers;
+        this.grading = grading;
         this.passCriteria = passCriteria;
         return generateHtml(questions);
     }
 
-    private String appendQuestion(Question question)
+    private void appendQuestion(Question question, Appendable out) throws IOException
     {
         if (!Objects.equals(currentTopic, question.getTopic())) {
             currentTopic = question.getTopic();
             qCounter = 1;
         }
-        String picture = ofNullable(question.getPicture()).map(Picture::getId)
-            .map(id -> PICTURE.replace("{picture}", id.toString())).orElse("");
-        String answers =
-            getAnswer(question, "A", question.getAnswerA()) +
-            getAnswer(question, "B", question.getAnswerB()) +
-            getAnswer(question, "C", question.getAnswerC()) +
-            getAnswer(question, "D", question.getAnswerD());
-        String qnumber = String.valueOf(qCounter);
+        out.append(QUESTION_START).append(String.valueOf(qCounter));
         qCounter++;
-        return QUESTION
-            .replace("{number}", qnumber)
-            .replace("{question}", question.getQuestion())
-            .replace("{picture}", picture)
-            .replace("{answers}", answers);
+        // Without answers given, the question looks the same in every practice exam
+        if (grading == null && fragmentCache != null)
+            out.append(fragmentCache.get(question, this::renderQuestion));
+        else
+            appendQuestionAfterNumber(question, out);
+        position++;
+    }
+
+    private String renderQuestion(Question question)
+    {
+        StringBuilder out = new StringBuilder(1024);
+        try
+        {
+            appendQuestionAfterNumber(question, out);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e); // Not thrown by StringBuilder
+        }
+        return out.toString();
+    }
+
+    private void appendQuestionAfterNumber(Question question, Appendable out) throws IOException
+    {
+        QUESTION_TEMPLATE.render(out, placeholder -> {
+            switch (placeholder)
+            {
+                case 0 -> out.append(question.getQuestion());
+                case 1 -> {
+                    if (question.getPicture() != null)
+                        out.append(PICTURE_TEMPLATE.render(question.getPicture().getId().toString()));
+                }
+                case 2 -> {
+                    appendAnswer(question, "A", question.getAnswerA(), out);
+                    appendAnswer(question, "B", question.getAnswerB(), out);
+                    appendAnswer(question, "C", question.getAnswerC(), out);
+                    appendAnswer(question, "D", question.getAnswerD(), out);
+                }
+                default -> throw new IllegalArgumentException();
+            }
+        });
     }
 
-    private String getAnswer(Question question, String abcd, String answer)
+    private void appendAnswer(Question question, String abcd, String answer, Appendable out) throws IOException
     {
         String qid = question.getId().toString();
         String color = null;
-        String givenAnswer = questionsToAnswers.get(qid);
-        boolean thisAnswerIsCorrect = abcd.equals(question.getAnswer());
-        boolean givenIsThisAnswer = abcd.equals(givenAnswer);
-        if (!Strings.isNullOrEmpty(givenAnswer))
+        byte letter = (byte)abcd.charAt(0);
+        byte givenAnswer = grading == null ? 0 : grading.givenAnswers()[position];
+        boolean thisAnswerIsCorrect = grading != null && letter == grading.correctAnswers()[position];
+        boolean givenIsThisAnswer = letter == givenAnswer;
+        if (givenAnswer != 0)
         {
             if (thisAnswerIsCorrect) {
                 color = "green";
@@ -338,11 +422,11 @@ class ExamGeneratorHtml
             }
         }
         String style = color == null ? "" : "style=\"color:" + color + "\"";
-        return ANSWER
-            .replace("{style}", style)
-            .replace("{qid}", qid)
-            .replace("{abcd}", abcd)
-            .replace("{checked}", givenIsThisAnswer ? "checked=\"checked\"" : "")
-            .replace("{answer}", answer);
+        out.append(ANSWER_TEMPLATE.render(
+            style,
+            qid,
+            abcd,
+            givenIsThisAnswer ? "checked=\"checked\"" : "",
+            answer));
     }
 }
@@ -5,18 +5,17 @@ import java.util.List;
 
 import org.knvvl.exam.entities.Exam;
 import org.knvvl.exam.entities.ExamQuestion;
-import org.knvvl.exam.entities.Picture;
 import org.knvvl.exam.entities.Question;
-import org.knvvl.exam.entities.Requirement;
-import org.knvvl.exam.entities.Topic;
 import org.knvvl.exam.meta.Config;
 import org.knvvl.exam.repos.ExamQuestionRepository;
 import org.knvvl.exam.repos.ExamRepository;
 import org.knvvl.exam.repos.QuestionRepository;
 import org.knvvl.exam.repos.TopicRepository;
+import org.knvvl.exam.services.QuestionIndex.IndexedQuestion;
 import org.knvvl.exam.values.ExamQuestions;
 import org.knvvl.exam.values.PassCriteria;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import jakarta.transaction.Transactional;
@@ -25,6 +24,9 @@ import jakarta.transaction.Transactional;
 public class ExamService
 {
     public static final int MAX_FILTERS = 3;
+    private static final int JDBC_BATCH_SIZE = 500;
+    private static final String INSERT_EXAM_QUESTION =
+        "insert into t_exam_question (id, exam, question, topic, question_index, answer) values (?, ?, ?, ?, ?, ?)";
 
     @Autowired
     private ExamRepository examRepository;
@@ -38,6 +40,10 @@ public class ExamService
     private TextService textService;
     @Autowired
     private TopicRepository topicRepository;
+    @Autowired
+    private AltQuestionService altQuestionService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
     @Transactional
     public void addExam(Exam exam, List<Question> questions)
@@ -56,6 +62,38 @@ public class ExamService
         changeDetector.changed();
     }
 
+    /**
+     * Stores a series of exams in one transaction; the exam questions are written with JDBC batch inserts.
+     * @param questions Per exam, the questions from the {@link QuestionIndex}
+     */
+    @Transactional
+    public void addExams(List<Exam> exams, List<List<IndexedQuestion>> questions)
+    {
+        Exam last = examRepository.findTopByOrderByIdDesc();
+        int nextId = last == null ? 1 : last.getId() + 1;
+        for (Exam exam : exams)
+            exam.setId(nextId++);
+        examRepository.saveAll(exams);
+        examRepository.flush(); // Exams must exist before inserting their questions
+
+        List<Object[]> rows = new ArrayList<>();
+        for (int e = 0; e < exams.size(); e++)
+        {
+            int examId = exams.get(e).getId();
+            List<IndexedQuestion> examQuestions = questions.get(e);
+            for (int i = 0; i < examQuestions.size(); i++)
+            {
+                IndexedQuestion question = examQuestions.get(i);
+                rows.add(new Object[] {ExamQuestion.idFor(examId, i), examId, question.id(), question.topic(), i, question.answer()});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_EXAM_QUESTION, rows, JDBC_BATCH_SIZE, (ps, row) -> {
+            for (int column = 0; column < row.length; column++)
+                ps.setObject(column + 1, row[column]);
+        });
+        changeDetector.changed();
+    }
+
     /**
      *
      * @param examId
@@ -78,52 +116,7 @@ public class ExamService
         examQuestion.setQuestion(questionRepository.getReferenceById(altQuestionId));
         examQuestionRepository.save(examQuestion);
         changeDetector.changed();
-    }
-
-    public List<Question> getAltQuestions(ExamQuestion examQuestion)
-    {
-        int examId = examQuestion.getExam();
-        Question questionForWhichToGetAlt = examQuestion.getQuestion();
-        Topic topic = questionForWhichToGetAlt.getTopic();
-        Exam exam = examRepository.getReferenceById(examId);
-        List<Question> allQuestionsForTopic = questionRepository.findByTopicOrderById(topic);
-        List<Question> allAltQuestionsForTopic = ExamCreationService.filterForExam(allQuestionsForTopic, exam.getLanguage(), exam.getCertificate(), topic).toList();
-        List<Question> questionsForTopicInExam = getExamQuestionsForExam(examId).stream()
-            .filter(eq -> topic.getId().equals(eq.getTopic().getId()))
-            .map(ExamQuestion::getQuestion).toList();
-
-        List<Question> altQuestionsForTopic = getAltQuestionsForTopic(allAltQuestionsForTopic, questionsForTopicInExam);
-
-        // Set order: first questions with same requirement, then with same topic
-        List<Question> altQuestions = new ArrayList<>();
-        altQuestions.add(questionForWhichToGetAlt);
-        Requirement requirement = questionForWhichToGetAlt.getRequirement();
-        allAltQuestionsForTopic.stream().filter(q -> q.getRequirement().equals(requirement)).forEach(altQuestions::add);
-        altQuestionsForTopic.stream().filter(q -> !q.getRequirement().equals(requirement)).forEach(altQuestions::add);
-        return altQuestions;
-    }
-
-    private List<Question> getAltQuestionsForTopic(List<Question> allAltQuestionsForTopic, List<Question> questionsForTopicInExam)
-    {
-        // As long as too few alt-questions remain, skip more filters of the similar-questions check
-        List<Question> altQuestionsForTopic = new ArrayList<>();
-        int howManyFilters = MAX_FILTERS;
-        while (howManyFilters >= 0 && altQuestionsForTopic.size() < 10) {
-            altQuestionsForTopic = getAltQuestionsForTopic(allAltQuestionsForTopic, questionsForTopicInExam, howManyFilters);
-            howManyFilters--;
-        }
-        return altQuestionsForTopic;
-    }
-
-    private List<Question> getAltQuestionsForTopic(List<Question> allAltQuestionsForTopic, List<Question> questionsForTopicInExam, int howManyFilters)
-    {
-        // Start with all questions for this topic that 'fit' in this exam
-        List<Question> altQuestionsForTopic = new ArrayList<>(allAltQuestionsForTopic);
-        // Remove questions having same picture/group/etc as any of the questions already in the exam
-        questionsForTopicInExam.forEach(q -> removeSimilarQuestions(q, altQuestionsForTopic, howManyFilters));
-        // Remove questions that are already in this exam
-        altQuestionsForTopic.removeAll(questionsForTopicInExam); // includes questionForWhichToGetAlt
-        return altQuestionsForTopic;
+        altQuestionService.questionSwapped(examQuestion.getExam(), examQuestionId, altQuestionId);
     }
 
     @Transactional
@@ -133,32 +126,7 @@ public class ExamService
         examQuestionRepository.deleteAll(questions);
         examRepository.delete(examRepository.getReferenceById(examId));
         changeDetector.changed();
-    }
-
-    /**
-     * @param examQuestion
-     * @param removeFrom
-     * @param howManyFilters 0, 1, 2, 3
-     */
-    public static void removeSimilarQuestions(Question examQuestion, List<Question> removeFrom, int howManyFilters)
-    {
-        // Use any given picture only once
-        if (howManyFilters > 0) {
-            Picture pictureInExam = examQuestion.getPicture();
-            if (pictureInExam != null)
-                removeFrom.removeIf(q -> pictureInExam.equals(q.getPicture()));
-        }
-        // Include at most one question in a given examGroup
-        if (howManyFilters > 1) {
-            String examGroup = examQuestion.getExamGroup();
-            if (!examGroup.isEmpty())
-                removeFrom.removeIf(q -> examGroup.equals(q.getExamGroup()));
-        }
-        // Include one question per requirement
-        if (howManyFilters > 2) {
-            Requirement requirement = examQuestion.getRequirement();
-            removeFrom.removeIf(q -> requirement.equals(q.getRequirement()));
-        }
+        altQuestionService.examDeleted(examId);
     }
 
     public PassCriteria getPassCriteria()
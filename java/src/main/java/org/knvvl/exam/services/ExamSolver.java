@@ -0,0 +1,155 @@
+package org.knvvl.exam.services;
+
+import static org.knvvl.exam.services.ExamService.MAX_FILTERS;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+import org.knvvl.exam.services.QuestionIndex.IndexedQuestion;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Picks the questions for one topic of an exam, using backtracking with forward checking.
+ * The filters (see {@link CandidateSet#removeSimilar}) are tried from strongest to weakest:
+ * a weaker level is only used when the search proved that no valid selection exists at the
+ * stronger level, or when the search limit was reached. Each relaxation is reported.
+ */
+final class ExamSolver
+{
+    static final int DEFAULT_MAX_STEPS = 100_000;
+    private static final String[] FILTER_NAMES = {"", "each picture at most once", "at most one question per exam group", "one question per requirement"};
+
+    private final CandidateSet candidates;
+    private final BitSet allowed;
+    @Nullable private final BitSet preferred;
+    private final RandomGenerator random;
+    private final int maxSteps;
+    private int steps;
+
+    /**
+     * @param questions The selected questions, in the order they were picked
+     * @param howManyFilters The filter level at which the selection was found, see {@link CandidateSet#removeSimilar}
+     * @param relaxations Which filters were dropped and why; empty if all filters were applied
+     */
+    record Result(List<IndexedQuestion> questions, int howManyFilters, List<String> relaxations) {}
+
+    ExamSolver(CandidateSet candidates, BitSet allowed, RandomGenerator random)
+    {
+        this(candidates, allowed, null, random, DEFAULT_MAX_STEPS);
+    }
+
+    ExamSolver(CandidateSet candidates, BitSet allowed, @Nullable BitSet preferred, RandomGenerator random)
+    {
+        this(candidates, allowed, preferred, random, DEFAULT_MAX_STEPS);
+    }
+
+    /**
+     * @param preferred Candidates to try first; only affects which solution is found, not whether one is found
+     * @param maxSteps Search steps per filter level; bounds the time spent on a topic
+     */
+    ExamSolver(CandidateSet candidates, BitSet allowed, @Nullable BitSet preferred, RandomGenerator random, int maxSteps)
+    {
+        this.candidates = candidates;
+        this.allowed = allowed;
+        this.preferred = preferred;
+        this.random = random;
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * @param n Number of questions to pick
+     * @return The selection, or null if even the weakest filter level has no solution
+     */
+    @Nullable
+    Result solve(int n)
+    {
+        List<String> relaxations = new ArrayList<>();
+        for (int howManyFilters = MAX_FILTERS; howManyFilters > 0; howManyFilters--)
+        {
+            String reason = checkFeasible(allowed, n, howManyFilters);
+            if (reason == null)
+            {
+                steps = 0;
+                List<IndexedQuestion> picked = new ArrayList<>(n);
+                if (search((BitSet)allowed.clone(), picked, n, howManyFilters))
+                    return new Result(picked, howManyFilters, relaxations);
+                reason = steps >= maxSteps
+                    ? "no selection found within " + maxSteps + " search steps"
+                    : "no combination of " + n + " questions satisfies all filters";
+            }
+            relaxations.add("Relaxed '" + FILTER_NAMES[howManyFilters] + "': " + reason);
+        }
+        return null;
+    }
+
+    /**
+     * Forward check: can the remaining candidates still provide the required number of questions?
+     * @return Why not, or null if they might
+     */
+    @Nullable
+    private String checkFeasible(BitSet remaining, int needed, int howManyFilters)
+    {
+        int available = remaining.cardinality();
+        if (available < needed)
+            return "only " + available + " candidates for " + needed + " questions";
+        for (int filter = howManyFilters; filter > 0; filter--)
+        {
+            int pickable = candidates.countPickable(remaining, filter);
+            if (pickable < needed)
+                return "only " + pickable + " questions possible with '" + FILTER_NAMES[filter] + "' for " + needed + " questions";
+        }
+        return null;
+    }
+
+    private boolean canStillPick(BitSet remaining, int needed, int howManyFilters)
+    {
+        if (remaining.cardinality() < needed)
+            return false;
+        for (int filter = howManyFilters; filter > 0; filter--)
+        {
+            if (candidates.countPickable(remaining, filter) < needed)
+                return false;
+        }
+        return true;
+    }
+
+    private int pick(BitSet remaining)
+    {
+        if (preferred != null)
+        {
+            BitSet remainingPreferred = (BitSet)remaining.clone();
+            remainingPreferred.and(preferred);
+            if (!remainingPreferred.isEmpty())
+                return CandidateSet.pickRandom(remainingPreferred, random);
+        }
+        return CandidateSet.pickRandom(remaining, random);
+    }
+
+    private boolean search(BitSet remaining, List<IndexedQuestion> picked, int n, int howManyFilters)
+    {
+        if (picked.size() == n)
+            return true;
+        while (steps < maxSteps)
+        {
+            int index = pick(remaining);
+            if (index < 0)
+                return false;
+            steps++;
+            // Whether or not this candidate leads to a solution, siblings need not consider it again
+            remaining.clear(index);
+            IndexedQuestion question = candidates.get(index);
+            BitSet next = (BitSet)remaining.clone();
+            candidates.removeSimilar(question, next, howManyFilters);
+            if (!canStillPick(next, n - picked.size() - 1, howManyFilters))
+                continue;
+            picked.add(question);
+            if (search(next, picked, n, howManyFilters))
+                return true;
+            picked.remove(picked.size() - 1);
+        }
+        return false;
+    }
+}
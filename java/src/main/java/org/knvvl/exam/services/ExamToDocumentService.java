@@ -1,24 +1,184 @@
 package org.knvvl.exam.services;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.knvvl.exam.entities.Exam;
 import org.knvvl.exam.entities.ExamQuestion;
+import org.knvvl.exam.entities.Picture;
 import org.knvvl.exam.entities.Question;
+import org.knvvl.exam.meta.Config;
+import org.knvvl.exam.repos.ExamRepository;
+import org.knvvl.exam.repos.QuestionRepository;
+import org.knvvl.exam.values.ExamException;
+import org.knvvl.tools.generic.HashBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
 
 @Service
 public class ExamToDocumentService
 {
+    /**
+     * Bounds the number of PDFs rendered in parallel for ZIP exports, across all requests
+     */
+    static final int PDF_WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
     @Autowired ExamService examService;
     @Autowired TextService textService;
+    @Autowired PdfCache pdfCache;
+    @Autowired PictureRenditions pictureRenditions;
+    @Autowired FontManager fontManager;
+    @Autowired QuestionFragmentCache questionFragmentCache;
+    @Autowired PracticeGrader practiceGrader;
+    @Autowired QuestionRepository questionRepository;
+    @Autowired ExamRepository examRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    private final ExecutorService pdfWorkers = Executors.newFixedThreadPool(PDF_WORKERS, runnable -> {
+        Thread thread = new Thread(runnable, "pdf-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PreDestroy
+    void shutdown()
+    {
+        pdfWorkers.shutdownNow();
+    }
 
     public byte[] generatePdf(Exam exam, boolean withQuestionId)
     {
         List<ExamQuestion> questions = examService.getExamQuestionsForExam(exam.getId());
-        return new ExamGenerator(textService, exam, questions, withQuestionId).generatePdf();
+        return new ExamGenerator(textService, pictureRenditions, fontManager.getFonts(), exam, questions, withQuestionId).generatePdf();
+    }
+
+    /**
+     * Same as {@link #generatePdf(Exam, boolean)}, streaming to the given output instead of building the PDF in memory.
+     * A PDF generated before from the same inputs is served from the {@link PdfCache}.
+     * @param outputStream Is not closed
+     */
+    public void generatePdf(Exam exam, boolean withQuestionId, OutputStream outputStream) throws IOException
+    {
+        List<ExamQuestion> questions = examService.getExamQuestionsForExam(exam.getId());
+        String key = getCacheKey(exam, questions, withQuestionId);
+        pdfCache.writeTo(key, outputStream, stream -> new ExamGenerator(textService, pictureRenditions, fontManager.getFonts(), exam, questions, withQuestionId).generatePdf(stream));
+    }
+
+    private record NamedPdf(String label, byte[] pdf) {}
+
+    /**
+     * Renders the given exams on the worker pool and writes each PDF to the ZIP as soon as it is finished,
+     * so entries appear in order of completion. At most twice {@link #PDF_WORKERS} PDFs are held in memory.
+     * @param outputStream Is not closed
+     */
+    public void generateZip(List<Integer> examIds, boolean withQuestionId, OutputStream outputStream) throws IOException
+    {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        CompletionService<NamedPdf> completionService = new ExecutorCompletionService<>(pdfWorkers);
+        Queue<Integer> todo = new ArrayDeque<>(examIds);
+        Set<String> entryNames = new HashSet<>();
+        List<Future<NamedPdf>> futures = new ArrayList<>();
+        int running = 0;
+        boolean finished = false;
+        ZipOutputStream zip = new ZipOutputStream(outputStream);
+        try
+        {
+            while (!todo.isEmpty() || running > 0)
+            {
+                while (!todo.isEmpty() && running < 2 * PDF_WORKERS)
+                {
+                    int examId = todo.remove();
+                    futures.add(completionService.submit(() -> transactionTemplate.execute(status -> renderPdf(examId, withQuestionId))));
+                    running++;
+                }
+                NamedPdf namedPdf = completionService.take().get();
+                running--;
+                String label = namedPdf.label().replaceAll("[\\\\/:*?\"<>|]", "_");
+                String entryName = label + ".pdf";
+                for (int i = 2; !entryNames.add(entryName); i++)
+                    entryName = label + " (" + i + ").pdf";
+                zip.putNextEntry(new ZipEntry(entryName));
+                zip.write(namedPdf.pdf());
+                zip.closeEntry();
+                zip.flush();
+            }
+            zip.finish();
+            finished = true;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new ExamException("Interrupted while generating PDFs");
+        }
+        catch (ExecutionException e)
+        {
+            throw new ExamException("Cannot generate PDF: " + e.getCause().getMessage());
+        }
+        finally
+        {
+            if (!finished) // The workers are shared, don't let them render PDFs that nobody gets
+                futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private NamedPdf renderPdf(int examId, boolean withQuestionId)
+    {
+        Exam exam = examRepository.getReferenceById(examId);
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+        try
+        {
+            generatePdf(exam, withQuestionId, pdf);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return new NamedPdf(exam.getLabel(), pdf.toByteArray());
+    }
+
+    private String getCacheKey(Exam exam, List<ExamQuestion> examQuestions, boolean withQuestionId)
+    {
+        var key = new HashBuilder()
+            .add(exam.getId()).add(exam.getLabel()).add(exam.getCertificate()).add(exam.getLanguage())
+            .add(withQuestionId);
+        for (Config config : ExamGenerator.CONFIG_KEYS)
+            key.add(textService.get(config));
+        for (ExamQuestion examQuestion : examQuestions)
+        {
+            Question question = examQuestion.getQuestion();
+            key.add(examQuestion.getTopic().getLabel())
+                .add(question.getId()).add(question.getQuestion())
+                .add(question.getAnswerA()).add(question.getAnswerB()).add(question.getAnswerC()).add(question.getAnswerD())
+                .add(question.getAnswer()).add(question.getRequirement().getSubdomain()).add(question.getTags(false));
+            Picture picture = question.getPicture();
+            // Not hashing the picture data itself; replacing a picture goes through ChangeDetector anyway
+            key.add(picture == null ? null : picture.getId() + "/" + picture.getFilename() + "/" + picture.getFileSize());
+        }
+        return key.build();
     }
 
     public String generateHtml(Exam exam)
@@ -30,11 +190,24 @@ public class ExamToDocumentService
 
     public String generateHtml(List<Question> questions)
     {
-        return new ExamGeneratorHtml().generateHtml(questions);
+        return new ExamGeneratorHtml(questionFragmentCache).generateHtml(questions);
+    }
+
+    /**
+     * Same as {@link #generateHtml(List)}, writing the page to the given output while it is generated.
+     */
+    public void generateHtml(List<Question> questions, Writer writer) throws IOException
+    {
+        new ExamGeneratorHtml(questionFragmentCache).generateHtml(questions, writer);
     }
 
-    public String checkPracticeExam(int topicId, List<Question> questions, Map<String, String> questionsToAnswers)
+    /**
+     * @param form As posted from a practice exam page
+     */
+    public String checkPracticeExam(Map<String, String> form)
     {
-        return new ExamGeneratorHtml().checkPracticeExam(questions, questionsToAnswers, examService.getPassCriteria());
+        PracticeGrader.Grading grading = practiceGrader.grade(form);
+        List<Question> questions = questionRepository.findAllByIdInOrder(Arrays.stream(grading.questionIds()).boxed().toList());
+        return new ExamGeneratorHtml(questionFragmentCache).checkPracticeExam(questions, grading, examService.getPassCriteria());
     }
 }
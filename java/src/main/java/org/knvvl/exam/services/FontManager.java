@@ -0,0 +1,162 @@
+package org.knvvl.exam.services;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.logging.log4j.util.Strings;
+import org.knvvl.exam.meta.Config;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.itextpdf.text.Font;
+import com.itextpdf.text.FontFactory;
+
+/**
+ * Registers the PDF fonts once and hands out the fonts for PDF generation.
+ * Fonts are re-registered only when a font name setting changes; changed font sizes just create new Font instances.
+ * The Font instances are shared by all PDF generations and must not be modified.
+ */
+@Service
+public class FontManager
+{
+    static final Path fontsDir = Path.of("fonts");
+
+    private final TextService textService;
+
+    /**
+     * Immutable set of fonts for one combination of font settings
+     */
+    public record Fonts(String titleFontName, String titleFontSize, String bodyFontName, String bodyFontSize,
+        Font titleFont, Font bodyFont, Font captionFont) {}
+
+    private volatile Fonts fonts;
+    private Fonts lastLoaded;
+    private String registeredTitleFontName;
+    private String registeredBodyFontName;
+
+    @Autowired
+    public FontManager(TextService textService, ChangeDetector changeDetector)
+    {
+        this.textService = textService;
+        changeDetector.addListener(() -> fonts = null); // Settings might have changed
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerAtStartup()
+    {
+        getFonts();
+    }
+
+    public Fonts getFonts()
+    {
+        Fonts current = fonts;
+        if (current == null)
+        {
+            synchronized (this)
+            {
+                current = fonts;
+                if (current == null)
+                {
+                    current = loadFonts();
+                    lastLoaded = current;
+                    fonts = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Fonts loadFonts()
+    {
+        String titleFontName = textService.get(Config.EXAM_TITLE_FONTNAME);
+        String titleFontSize = textService.get(Config.EXAM_TITLE_FONTSIZE);
+        String bodyFontName = textService.get(Config.EXAM_BODY_FONTNAME);
+        String bodyFontSize = textService.get(Config.EXAM_BODY_FONTSIZE);
+        Fonts previous = lastLoaded;
+        if (previous != null && previous.titleFontName().equals(titleFontName) && previous.titleFontSize().equals(titleFontSize)
+            && previous.bodyFontName().equals(bodyFontName) && previous.bodyFontSize().equals(bodyFontSize))
+        {
+            return previous;
+        }
+        if (!titleFontName.equals(registeredTitleFontName) || !bodyFontName.equals(registeredBodyFontName))
+        {
+            registerFonts(titleFontName, bodyFontName);
+            registeredTitleFontName = titleFontName;
+            registeredBodyFontName = bodyFontName;
+        }
+        int bodySize = Integer.parseInt(bodyFontSize);
+        return new Fonts(titleFontName, titleFontSize, bodyFontName, bodyFontSize,
+            FontFactory.getFont(titleFontName, Integer.parseInt(titleFontSize), Font.BOLD),
+            getBodyFont(bodyFontName, bodySize, Font.UNDEFINED),
+            getBodyFont(bodyFontName, bodySize, Font.ITALIC));
+    }
+
+    private static Font getBodyFont(String fontName, int size, int style)
+    {
+        return FontFactory.getFont(fontName, FontFactory.defaultEncoding, FontFactory.defaultEmbedding, size, style);
+    }
+
+    private void registerFonts(String titleFontName, String bodyFontName)
+    {
+        if (createFontsDir())
+        {
+            extractFont(titleFontName);
+            extractFont(bodyFontName);
+            int registered = Files.exists(fontsDir) ? FontFactory.registerDirectory(fontsDir.toFile().getAbsolutePath()) : 0;
+            System.out.println("Registered " + registered + " font(s) found in " + fontsDir);
+        }
+    }
+
+    private boolean createFontsDir()
+    {
+        try
+        {
+            if (!Files.exists(fontsDir))
+            {
+                Files.createDirectory(fontsDir);
+            }
+        }
+        catch (IOException e)
+        {
+            System.out.println("Cannot create fonts folder: " + e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    private void extractFont(String fontName)
+    {
+        if (Strings.isBlank(fontName))
+        {
+            return;
+        }
+        String fontFileName = fontName + ".ttf";
+        Path fontFile = fontsDir.resolve(fontFileName);
+        if (Files.exists(fontFile))
+        {
+            return;
+        }
+        try (InputStream inputStream = getClass().getResourceAsStream("/fonts/" + fontFileName))
+        {
+            if (inputStream == null)
+            {
+                System.out.println("Could not read font resource: " + fontFileName);
+                return;
+            }
+            try (FileOutputStream outputStream = new FileOutputStream(fontFile.toFile()))
+            {
+                outputStream.write(inputStream.readAllBytes());
+                System.out.println("Extracted font resource: " + fontFileName);
+            }
+        }
+        catch (IOException e)
+        {
+            System.out.println("Could not extract font resource: " + fontFileName + ", " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.knvvl.exam.services;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A template that is parsed once into literal segments and placeholders like "{question}".
+ * Only the given placeholder names are recognized, so other braces (CSS, JavaScript) are kept as they are.
+ * Rendering appends segments and values, without scanning the template again.
+ */
+final class HtmlTemplate
+{
+    /**
+     * One more literal than placeholders; literal i comes before placeholder i
+     */
+    private final String[] literals;
+    /**
+     * Per placeholder: the index of its name in the names given to {@link #compile}
+     */
+    private final int[] placeholders;
+
+    /**
+     * Appends the value of a placeholder to the output
+     */
+    @FunctionalInterface
+    interface Placeholder
+    {
+        /**
+         * @param name Index of the placeholder in the compiled names
+         */
+        void append(int name) throws IOException;
+    }
+
+    private HtmlTemplate(String[] literals, int[] placeholders)
+    {
+        this.literals = literals;
+        this.placeholders = placeholders;
+    }
+
+    /**
+     * @param names The placeholder names, without braces; their order defines the order of the values when rendering
+     */
+    static HtmlTemplate compile(String template, String... names)
+    {
+        List<String> literals = new ArrayList<>();
+        List<Integer> placeholders = new ArrayList<>();
+        int start = 0;
+        int open = template.indexOf('{');
+        while (open >= 0)
+        {
+            int close = template.indexOf('}', open);
+            if (close < 0)
+                break;
+            int name = indexOf(names, template.substring(open + 1, close));
+            if (name >= 0)
+            {
+                literals.add(template.substring(start, open));
+                placeholders.add(name);
+                start = close + 1;
+            }
+            open = template.indexOf('{', open + 1);
+        }
+        literals.add(template.substring(start));
+        return new HtmlTemplate(literals.toArray(String[]::new), placeholders.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private static int indexOf(String[] names, String name)
+    {
+        for (int i = 0; i < names.length; i++)
+        {
+            if (names[i].equals(name))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @param out E.g. a StringBuilder, or a Writer to stream the result
+     */
+    void render(Appendable out, Placeholder placeholder) throws IOException
+    {
+        for (int i = 0; i < placeholders.length; i++)
+        {
+            out.append(literals[i]);
+            placeholder.append(placeholders[i]);
+        }
+        out.append(literals[placeholders.length]);
+    }
+
+    /**
+     * @param values In the order of the compiled names
+     */
+    void render(StringBuilder out, CharSequence... values)
+    {
+        for (int i = 0; i < placeholders.length; i++)
+        {
+            out.append(literals[i]);
+            out.append(values[placeholders[i]]);
+        }
+        out.append(literals[placeholders.length]);
+    }
+
+    String render(CharSequence... values)
+    {
+        StringBuilder out = new StringBuilder();
+        render(out, values);
+        return out.toString();
+    }
+}
@@ -48,6 +48,7 @@ public class ImportExportService
     @Autowired private QuestionRepository questionRepository;
     @Autowired private RequirementRepository requirementRepository;
     @Autowired private TopicRepository topicRepository;
+    @Autowired private QuestionIndex questionIndex;
 
     @Value("${exam.importInitial}") boolean importInitial = true;
 
@@ -60,6 +61,7 @@ public class ImportExportService
             importInitial();
         }
         importQuestionTranslations("Questions_en.txt", LANGUAGE_EN);
+        questionIndex.invalidate();
     }
 
     private void importQuestionTranslations(String fileName, Language language)
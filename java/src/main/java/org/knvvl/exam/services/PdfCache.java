@@ -0,0 +1,256 @@
+package org.knvvl.exam.services;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Generated exam PDFs on disk, by a hash of everything that goes into them (see {@link org.knvvl.tools.generic.HashBuilder}).
+ * Least recently used files are evicted when the total size exceeds the limit;
+ * everything is dropped when the data changes (see {@link ChangeDetector#changed()}).
+ * Each generation of the cache has a directory of its own, so dropping everything only starts a new directory;
+ * the old ones are deleted in the background.
+ */
+@Service
+public class PdfCache
+{
+    static final Path cacheDir = Path.of("pdfcache");
+
+    @Autowired
+    private ChangeDetector changeDetector;
+
+    @Value("${exam.pdfCache.maxBytes:268435456}")
+    long maxBytes = 256L * 1024 * 1024;
+
+    /**
+     * Key -> file size, in order of last access
+     */
+    private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+    private long generation = 0;
+    /**
+     * Directories of an earlier run are never current
+     */
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final ExecutorService sweeper = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pdf-cache-sweep");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init()
+    {
+        clear();
+        changeDetector.addListener(this::clear);
+    }
+
+    @PreDestroy
+    void shutdown()
+    {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * Writes the cached PDF to the output, or else generates it while writing it to both the output and the cache.
+     * @param generator Writes the PDF to the given stream
+     */
+    public void writeTo(String key, OutputStream outputStream, Consumer<OutputStream> generator) throws IOException
+    {
+        Path file;
+        InputStream cached = null;
+        long generationAtStart;
+        synchronized (this)
+        {
+            file = getGenerationDir().resolve(key + ".pdf");
+            // Only opened here: a slow download should not hold back other requests, nor clear()
+            if (entries.get(key) != null)
+                cached = open(file);
+            generationAtStart = generation;
+        }
+        if (cached != null)
+        {
+            try (InputStream inputStream = cached)
+            {
+                inputStream.transferTo(outputStream);
+            }
+            return;
+        }
+
+        Files.createDirectories(file.getParent());
+        Path tempFile = Files.createTempFile(file.getParent(), key, ".tmp");
+        try
+        {
+            try (OutputStream fileStream = Files.newOutputStream(tempFile))
+            {
+                generator.accept(new TeeOutputStream(outputStream, fileStream));
+            }
+            add(key, tempFile, file, generationAtStart);
+        }
+        finally
+        {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * @return The opened file, still readable when it is deleted later on; or null if it is gone
+     */
+    @Nullable
+    private static InputStream open(Path file) throws IOException
+    {
+        try
+        {
+            return Files.newInputStream(file);
+        }
+        catch (NoSuchFileException e)
+        {
+            return null;
+        }
+    }
+
+    private synchronized void add(String key, Path tempFile, Path file, long generationAtStart) throws IOException
+    {
+        if (generation != generationAtStart)
+            return; // Data changed while generating
+        long size = Files.size(tempFile);
+        if (size > maxBytes)
+            return;
+        Files.move(tempFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        Long previous = entries.put(key, size);
+        totalBytes += size - (previous == null ? 0 : previous);
+        evict();
+    }
+
+    private void evict()
+    {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext())
+        {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            delete(getGenerationDir().resolve(eldest.getKey() + ".pdf"));
+        }
+    }
+
+    /**
+     * Drops all PDFs; their files are deleted in the background
+     */
+    public void clear()
+    {
+        String current;
+        synchronized (this)
+        {
+            generation++;
+            entries.clear();
+            totalBytes = 0;
+            current = getGenerationDir().getFileName().toString();
+        }
+        sweeper.execute(() -> sweep(current));
+    }
+
+    private Path getGenerationDir()
+    {
+        return cacheDir.resolve(runId + "-" + generation);
+    }
+
+    /**
+     * Deletes everything in the cache directory but the given generation; also files of an older layout
+     */
+    private static void sweep(String current)
+    {
+        if (!Files.exists(cacheDir))
+            return;
+        try (Stream<Path> paths = Files.list(cacheDir))
+        {
+            paths.filter(path -> !path.getFileName().toString().equals(current)).forEach(PdfCache::deleteTree);
+        }
+        catch (IOException e)
+        {
+            System.out.println("Cannot clear " + cacheDir + ": " + e.getMessage());
+        }
+    }
+
+    private static void deleteTree(Path path)
+    {
+        if (Files.isDirectory(path))
+        {
+            try (Stream<Path> paths = Files.list(path))
+            {
+                paths.forEach(PdfCache::delete);
+            }
+            catch (IOException e)
+            {
+                System.out.println("Cannot clear " + path + ": " + e.getMessage());
+            }
+        }
+        delete(path);
+    }
+
+    private static void delete(Path file)
+    {
+        try
+        {
+            Files.deleteIfExists(file);
+        }
+        catch (IOException e)
+        {
+            System.out.println("Cannot delete " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static class TeeOutputStream extends OutputStream
+    {
+        private final OutputStream first;
+        private final OutputStream second;
+
+        TeeOutputStream(OutputStream first, OutputStream second)
+        {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            first.write(b);
+            second.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            first.write(b, off, len);
+            second.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            first.flush();
+            second.flush();
+        }
+    }
+}
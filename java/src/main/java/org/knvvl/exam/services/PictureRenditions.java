@@ -0,0 +1,84 @@
+package org.knvvl.exam.services;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import javax.imageio.ImageIO;
+
+import org.knvvl.exam.entities.Picture;
+import org.springframework.stereotype.Service;
+
+import net.coobird.thumbnailator.Thumbnails;
+
+/**
+ * Pictures downscaled for the size they get in a PDF exam, so they are decoded and scaled once
+ * instead of for every exam and every download. Keyed by picture id and a checksum of the
+ * picture data, so a replaced picture gets a new rendition.
+ */
+@Service
+public class PictureRenditions
+{
+    /**
+     * Area in points that a picture gets in a PDF exam, see {@link ExamGenerator}
+     */
+    static final float TARGET_AREA = 80000;
+    /**
+     * Three pixels per point is 216 dpi, so printed pictures stay sharp
+     */
+    private static final float PIXELS_PER_POINT = 3;
+    static final float RENDER_AREA = TARGET_AREA * PIXELS_PER_POINT * PIXELS_PER_POINT;
+    private static final int MAX_ENTRIES = 1000;
+
+    private record Key(Integer pictureId, int length, long checksum) {}
+
+    private final Map<Key, byte[]> renditions = new LinkedHashMap<>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest)
+        {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * @return Image data of at most {@link #RENDER_AREA} pixels, or the original data if it is small enough already
+     */
+    public byte[] getRendition(Picture picture) throws IOException
+    {
+        byte[] fileData = picture.getFileData();
+        CRC32 crc = new CRC32();
+        crc.update(fileData);
+        Key key = new Key(picture.getId(), fileData.length, crc.getValue());
+        synchronized (renditions)
+        {
+            byte[] rendition = renditions.get(key);
+            if (rendition != null)
+                return rendition;
+        }
+        byte[] rendition = downscale(fileData);
+        synchronized (renditions)
+        {
+            renditions.put(key, rendition);
+        }
+        return rendition;
+    }
+
+    private static byte[] downscale(byte[] fileData) throws IOException
+    {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(fileData));
+        if (image == null)
+            return fileData; // Not a format we can scale; let iText deal with it
+        float factor = (float)Math.sqrt(RENDER_AREA / (image.getWidth() * image.getHeight()));
+        if (factor >= 1)
+            return fileData; // Don't blow up low-res pictures
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String format = image.getColorModel().hasAlpha() ? "png" : "jpg";
+        Thumbnails.of(image).scale(factor).outputFormat(format).outputQuality(0.9).toOutputStream(out);
+        return out.toByteArray();
+    }
+}
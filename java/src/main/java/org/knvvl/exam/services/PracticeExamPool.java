@@ -0,0 +1,140 @@
+package org.knvvl.exam.services;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.knvvl.exam.entities.Question;
+import org.knvvl.exam.repos.QuestionRepository;
+import org.knvvl.exam.values.Languages.Language;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Ready-made practice exams per topic and language, for the public practice endpoint.
+ * Requests take exams from each pool without locking; a background thread refills it.
+ * All pools are dropped when questions change.
+ */
+@Service
+public class PracticeExamPool implements QuestionIndex.Listener
+{
+    static final int POOL_SIZE = 32;
+
+    @Autowired private ExamCreationService examCreationService;
+    @Autowired private QuestionRepository questionRepository;
+
+    private final Map<Key, Pool> pools = new ConcurrentHashMap<>();
+    private final ExecutorService refiller = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "practice-exam-refill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private record Key(int topic, int nQuestions, Language language) {}
+
+    @Autowired
+    public PracticeExamPool(QuestionIndex questionIndex)
+    {
+        questionIndex.addListener(this);
+    }
+
+    @PreDestroy
+    void shutdown()
+    {
+        refiller.shutdownNow();
+    }
+
+    /**
+     * @return A practice exam from the pool, or a newly created one if the pool is empty
+     */
+    public List<Question> getPracticeExam(int topic, int nQuestions, Language language)
+    {
+        Key key = new Key(topic, nQuestions, language);
+        Pool pool = pools.get(key);
+        List<Integer> questionIds = pool == null ? null : pool.take();
+        if (questionIds == null)
+        {
+            questionIds = examCreationService.createPracticeExamIds(topic, nQuestions, language);
+            if (pool == null && !questionIds.isEmpty()) // Only pool topics that exist
+                pool = pools.computeIfAbsent(key, k -> new Pool());
+        }
+        if (pool != null)
+            scheduleRefill(key, pool);
+        return questionRepository.findAllByIdInOrder(questionIds);
+    }
+
+    private void scheduleRefill(Key key, Pool pool)
+    {
+        if (pool.refilling.compareAndSet(false, true))
+        {
+            refiller.execute(() -> {
+                try
+                {
+                    while (pools.get(key) == pool && pool.offer(examCreationService.createPracticeExamIds(key.topic(), key.nQuestions(), key.language())))
+                    {
+                        // Until full, or the pool was dropped
+                    }
+                }
+                catch (RuntimeException e)
+                {
+                    System.out.println("Cannot refill practice exams for topic " + key.topic() + ": " + e.getMessage());
+                }
+                finally
+                {
+                    pool.refilling.set(false);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void questionChanged(int questionId)
+    {
+        pools.clear();
+    }
+
+    @Override
+    public void allQuestionsChanged()
+    {
+        pools.clear();
+    }
+
+    /**
+     * Bounded pool of exams (question ids). Readers take exams without locking, and get null instead of waiting when
+     * it is empty; the size is only checked by the single writer, the refill thread.
+     */
+    private static class Pool
+    {
+        private final Queue<List<Integer>> exams = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        final AtomicBoolean refilling = new AtomicBoolean();
+
+        List<Integer> take()
+        {
+            List<Integer> questionIds = exams.poll();
+            if (questionIds != null)
+                size.decrementAndGet();
+            return questionIds;
+        }
+
+        /**
+         * @return False if the pool is full
+         */
+        boolean offer(List<Integer> questionIds)
+        {
+            if (size.get() >= POOL_SIZE)
+                return false;
+            size.incrementAndGet();
+            exams.add(questionIds);
+            return true;
+        }
+    }
+}
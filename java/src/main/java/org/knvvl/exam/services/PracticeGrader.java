@@ -0,0 +1,159 @@
+package org.knvvl.exam.services;
+
+import static org.knvvl.exam.services.ExamCreationService.isPracticeQuestion;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.knvvl.exam.services.QuestionIndex.IndexedQuestion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Grades a posted practice exam against an answer key in memory: per question its correct letter and topic,
+ * in primitive arrays derived from the {@link QuestionIndex}. Scores are counted in arrays too.
+ */
+@Service
+public class PracticeGrader
+{
+    static final String QUESTIONS_PARAM = "questions";
+
+    @Autowired private QuestionIndex questionIndex;
+
+    private volatile AnswerKey answerKey;
+
+    /**
+     * Sorted question ids, with the correct answer and topic at the same index
+     */
+    private static final class AnswerKey
+    {
+        final QuestionIndex.Snapshot index;
+        final int[] questionIds;
+        final byte[] answers;
+        final int[] topics;
+
+        AnswerKey(QuestionIndex.Snapshot index)
+        {
+            this.index = index;
+            List<IndexedQuestion> questions = index.getAll().stream().sorted(Comparator.comparingInt(IndexedQuestion::id)).toList();
+            questionIds = new int[questions.size()];
+            answers = new byte[questions.size()];
+            topics = new int[questions.size()];
+            for (int i = 0; i < questions.size(); i++)
+            {
+                IndexedQuestion question = questions.get(i);
+                questionIds[i] = question.id();
+                answers[i] = toLetter(question.answer());
+                topics[i] = question.topic();
+            }
+        }
+
+        int indexOf(int questionId)
+        {
+            return Arrays.binarySearch(questionIds, questionId);
+        }
+    }
+
+    /**
+     * The result per question, by position in the exam, and per topic, in order of first appearance.
+     * Answers are letters as bytes ('A'..'D'), or 0 when not given.
+     */
+    public record Grading(int[] questionIds, byte[] correctAnswers, byte[] givenAnswers, int[] topicOfQuestion,
+        int[] topicIds, int[] correctPerTopic, int[] questionsPerTopic)
+    {
+        public int size()
+        {
+            return questionIds.length;
+        }
+
+        public int percentageForTopic(int topicIndex)
+        {
+            return 100 * correctPerTopic[topicIndex] / questionsPerTopic[topicIndex];
+        }
+
+        public int percentageOverall()
+        {
+            int correct = 0;
+            for (int c : correctPerTopic)
+                correct += c;
+            return questionIds.length == 0 ? 0 : 100 * correct / questionIds.length;
+        }
+    }
+
+    /**
+     * @param form The posted form: the comma-separated question ids, and per question id the given answer
+     */
+    public Grading grade(Map<String, String> form)
+    {
+        AnswerKey key = getAnswerKey();
+        int[] questionIds = parseIds(form.getOrDefault(QUESTIONS_PARAM, ""));
+        int n = questionIds.length;
+        byte[] correctAnswers = new byte[n];
+        byte[] givenAnswers = new byte[n];
+        int[] topicOfQuestion = new int[n];
+        int[] topicIds = new int[n];
+        int[] correctPerTopic = new int[n];
+        int[] questionsPerTopic = new int[n];
+        int nTopics = 0;
+        for (int i = 0; i < n; i++)
+        {
+            int questionId = questionIds[i];
+            int k = key.indexOf(questionId);
+            if (k < 0 || !isPracticeQuestion.test(questionId))
+                throw new IllegalArgumentException("Question is not a practice question: " + questionId);
+            int topicIndex = 0;
+            while (topicIndex < nTopics && topicIds[topicIndex] != key.topics[k])
+                topicIndex++;
+            if (topicIndex == nTopics)
+                topicIds[nTopics++] = key.topics[k];
+            correctAnswers[i] = key.answers[k];
+            givenAnswers[i] = toLetter(form.get(String.valueOf(questionId)));
+            topicOfQuestion[i] = topicIndex;
+            questionsPerTopic[topicIndex]++;
+            if (givenAnswers[i] != 0 && givenAnswers[i] == correctAnswers[i])
+                correctPerTopic[topicIndex]++;
+        }
+        return new Grading(questionIds, correctAnswers, givenAnswers, topicOfQuestion,
+            Arrays.copyOf(topicIds, nTopics), Arrays.copyOf(correctPerTopic, nTopics), Arrays.copyOf(questionsPerTopic, nTopics));
+    }
+
+    private AnswerKey getAnswerKey()
+    {
+        QuestionIndex.Snapshot index = questionIndex.getSnapshot();
+        AnswerKey current = answerKey;
+        if (current == null || current.index != index) // Questions were changed
+        {
+            current = new AnswerKey(index);
+            answerKey = current;
+        }
+        return current;
+    }
+
+    static int[] parseIds(String commaSeparated)
+    {
+        int count = commaSeparated.isEmpty() ? 0 : 1;
+        for (int i = 0; i < commaSeparated.length(); i++)
+        {
+            if (commaSeparated.charAt(i) == ',')
+                count++;
+        }
+        int[] ids = new int[count];
+        int start = 0;
+        for (int i = 0; i < count; i++)
+        {
+            int end = commaSeparated.indexOf(',', start);
+            if (end < 0)
+                end = commaSeparated.length();
+            ids[i] = Integer.parseInt(commaSeparated, start, end, 10);
+            start = end + 1;
+        }
+        return ids;
+    }
+
+    private static byte toLetter(String answer)
+    {
+        return answer == null || answer.length() != 1 ? 0 : (byte)answer.charAt(0);
+    }
+}
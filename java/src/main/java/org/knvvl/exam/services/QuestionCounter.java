@@ -0,0 +1,62 @@
+package org.knvvl.exam.services;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.knvvl.exam.services.QuestionIndex.IndexedQuestion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Numbers of active (not ignored) questions per topic and per requirement.
+ * Counted in one pass over the {@link QuestionIndex}, and counted again only after questions changed.
+ */
+@Service
+public class QuestionCounter
+{
+    @Autowired private QuestionIndex questionIndex;
+
+    private volatile Counted counted;
+
+    private record Counted(QuestionIndex.Snapshot index, Counts counts) {}
+
+    public static final class Counts
+    {
+        private final Map<Integer, Integer> perTopic = new HashMap<>();
+        private final Map<Integer, Integer> perRequirement = new HashMap<>();
+
+        Counts(Collection<IndexedQuestion> questions)
+        {
+            for (IndexedQuestion question : questions)
+            {
+                if (question.ignore())
+                    continue;
+                perTopic.merge(question.topic(), 1, Integer::sum);
+                perRequirement.merge(question.requirement(), 1, Integer::sum);
+            }
+        }
+
+        public int getActiveForTopic(int topicId)
+        {
+            return perTopic.getOrDefault(topicId, 0);
+        }
+
+        public int getActiveForRequirement(int requirementId)
+        {
+            return perRequirement.getOrDefault(requirementId, 0);
+        }
+    }
+
+    public Counts getCounts()
+    {
+        QuestionIndex.Snapshot index = questionIndex.getSnapshot();
+        Counted current = counted;
+        if (current == null || current.index() != index) // Questions were changed
+        {
+            current = new Counted(index, new Counts(index.getAll()));
+            counted = current;
+        }
+        return current.counts();
+    }
+}
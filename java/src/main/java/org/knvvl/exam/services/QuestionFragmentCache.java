@@ -0,0 +1,42 @@
+package org.knvvl.exam.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.knvvl.exam.entities.Question;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Rendered HTML of each question for practice exams, without answers given; see {@link ExamGeneratorHtml}.
+ * Entries are dropped when their question changes.
+ */
+@Service
+public class QuestionFragmentCache implements QuestionIndex.Listener
+{
+    private final Map<Integer, String> fragments = new ConcurrentHashMap<>();
+
+    @Autowired
+    public QuestionFragmentCache(QuestionIndex questionIndex)
+    {
+        questionIndex.addListener(this);
+    }
+
+    String get(Question question, Function<Question, String> renderer)
+    {
+        return fragments.computeIfAbsent(question.getId(), id -> renderer.apply(question));
+    }
+
+    @Override
+    public void questionChanged(int questionId)
+    {
+        fragments.remove(questionId);
+    }
+
+    @Override
+    public void allQuestionsChanged()
+    {
+        fragments.clear();
+    }
+}
@@ -0,0 +1,237 @@
+package org.knvvl.exam.services;
+
+import static java.util.Comparator.comparingInt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.knvvl.exam.entities.Picture;
+import org.knvvl.exam.entities.Question;
+import org.knvvl.exam.repos.QuestionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * In-memory catalog of all questions, keyed by (topic, language, certificate, ignore).
+ * Exam generation reads candidate lists from here instead of scanning t_question.
+ * Snapshots are immutable; changes replace the snapshot as a whole (copy-on-write),
+ * so readers never need to lock.
+ */
+@Service
+public class QuestionIndex
+{
+    static final int[] CERTIFICATES = {2, 3};
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    private volatile Snapshot snapshot;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * For data derived from questions, to be notified of question changes
+     */
+    public interface Listener
+    {
+        void questionChanged(int questionId);
+
+        void allQuestionsChanged();
+    }
+
+    public record Key(int topic, String language, int certificate, boolean ignore) {}
+
+    /**
+     * The attributes of a question that matter for composing an exam, without any lazy JPA references.
+     */
+    public record IndexedQuestion(int id, int topic, int requirement, @Nullable Integer picture, @Nonnull String examGroup,
+        String language, boolean allowB2, boolean allowB3, boolean ignore, String answer)
+    {
+        static IndexedQuestion of(Question question)
+        {
+            Picture picture = question.getPicture();
+            return new IndexedQuestion(
+                question.getId(),
+                question.getTopic().getId(),
+                question.getRequirement().getId(),
+                picture == null ? null : picture.getId(),
+                question.getExamGroup(),
+                question.getLanguage(),
+                question.isAllowB2(),
+                question.isAllowB3(),
+                question.isIgnore(),
+                question.getAnswer());
+        }
+
+        public boolean allowForCertificate(int certificate)
+        {
+            if (certificate == 2)
+                return allowB2;
+            if (certificate == 3)
+                return allowB3;
+            return false;
+        }
+
+        List<Key> keys()
+        {
+            List<Key> keys = new ArrayList<>(CERTIFICATES.length);
+            for (int certificate : CERTIFICATES)
+            {
+                if (allowForCertificate(certificate))
+                    keys.add(new Key(topic, language, certificate, ignore));
+            }
+            return keys;
+        }
+    }
+
+    public static final class Snapshot
+    {
+        private final Map<Integer, IndexedQuestion> byId;
+        private final Map<Key, List<IndexedQuestion>> byKey;
+        private final Map<Key, CandidateSet> candidateSets = new ConcurrentHashMap<>();
+
+        private Snapshot(Map<Integer, IndexedQuestion> byId, Map<Key, List<IndexedQuestion>> byKey)
+        {
+            this.byId = byId;
+            this.byKey = byKey;
+        }
+
+        @Nullable
+        public IndexedQuestion get(int questionId)
+        {
+            return byId.get(questionId);
+        }
+
+        public int size()
+        {
+            return byId.size();
+        }
+
+        public Collection<IndexedQuestion> getAll()
+        {
+            return Collections.unmodifiableCollection(byId.values());
+        }
+
+        /**
+         * @return Questions ordered by id, not ignored, for the given topic/language/certificate
+         */
+        public List<IndexedQuestion> getCandidates(int topic, String language, int certificate)
+        {
+            return get(new Key(topic, language, certificate, false));
+        }
+
+        public List<IndexedQuestion> get(Key key)
+        {
+            return byKey.getOrDefault(key, List.of());
+        }
+
+        /**
+         * @return Same as {@link #getCandidates(int, String, int)}, as bitset-based candidate set
+         */
+        public CandidateSet getCandidateSet(int topic, String language, int certificate)
+        {
+            return candidateSets.computeIfAbsent(new Key(topic, language, certificate, false), key -> new CandidateSet(get(key)));
+        }
+    }
+
+    public Snapshot getSnapshot()
+    {
+        Snapshot current = snapshot;
+        if (current == null)
+        {
+            synchronized (this)
+            {
+                current = snapshot;
+                if (current == null)
+                {
+                    current = build(questionRepository.findAll());
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public void addListener(Listener listener)
+    {
+        listeners.add(listener);
+    }
+
+    /**
+     * To be called after a question was created or updated.
+     */
+    public void update(Question question)
+    {
+        updateSnapshot(question);
+        int questionId = question.getId();
+        listeners.forEach(listener -> listener.questionChanged(questionId));
+    }
+
+    private synchronized void updateSnapshot(Question question)
+    {
+        Snapshot current = snapshot;
+        if (current == null)
+            return; // Will be loaded on first use
+        IndexedQuestion indexed = IndexedQuestion.of(question);
+        IndexedQuestion previous = current.byId.get(indexed.id());
+        if (indexed.equals(previous))
+            return;
+
+        Map<Integer, IndexedQuestion> byId = new HashMap<>(current.byId);
+        byId.put(indexed.id(), indexed);
+        Map<Key, List<IndexedQuestion>> byKey = new HashMap<>(current.byKey);
+        if (previous != null)
+        {
+            for (Key key : previous.keys())
+            {
+                List<IndexedQuestion> list = new ArrayList<>(byKey.getOrDefault(key, List.of()));
+                list.removeIf(q -> q.id() == previous.id());
+                byKey.put(key, List.copyOf(list));
+            }
+        }
+        for (Key key : indexed.keys())
+        {
+            List<IndexedQuestion> list = new ArrayList<>(byKey.getOrDefault(key, List.of()));
+            list.add(indexed);
+            list.sort(comparingInt(IndexedQuestion::id));
+            byKey.put(key, List.copyOf(list));
+        }
+        snapshot = new Snapshot(byId, byKey);
+    }
+
+    /**
+     * To be called after bulk changes (import, restore); the index is rebuilt on next use.
+     */
+    public void invalidate()
+    {
+        synchronized (this)
+        {
+            snapshot = null;
+        }
+        listeners.forEach(Listener::allQuestionsChanged);
+    }
+
+    private static Snapshot build(List<Question> questions)
+    {
+        Map<Integer, IndexedQuestion> byId = new HashMap<>();
+        Map<Key, List<IndexedQuestion>> grouped = new HashMap<>();
+        questions.stream()
+            .map(IndexedQuestion::of)
+            .sorted(comparingInt(IndexedQuestion::id))
+            .forEach(q -> {
+                byId.put(q.id(), q);
+                q.keys().forEach(key -> grouped.computeIfAbsent(key, k -> new ArrayList<>()).add(q));
+            });
+        Map<Key, List<IndexedQuestion>> byKey = new HashMap<>();
+        grouped.forEach((key, list) -> byKey.put(key, List.copyOf(list)));
+        return new Snapshot(byId, byKey);
+    }
+}
@@ -0,0 +1,239 @@
+package org.knvvl.exam.services;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.knvvl.exam.entities.Question;
+import org.knvvl.exam.repos.QuestionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Inverted index over question text, answers, remarks and tags, for the question search.
+ * Every word of the search phrase must be the start of a word in the question (prefix match).
+ * Words are lowercased and stripped of accents, so "categorieen" finds "categorieën" (Dutch and English alike).
+ * Questions are indexed on first use, and updated one by one from {@link QuestionService}.
+ */
+@Service
+public class QuestionSearchIndex implements QuestionIndex.Listener
+{
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * Token -> question ids; sorted, so all tokens with a given prefix are adjacent
+     */
+    private final NavigableMap<String, BitSet> postings = new TreeMap<>();
+    private final Map<Integer, Set<String>> tokensPerQuestion = new HashMap<>();
+    /**
+     * Question id -> tokens, of questions updated while the index was not built; put after the build,
+     * since the questions loaded for it may be older
+     */
+    private final Map<Integer, Set<String>> pending = new HashMap<>();
+    private boolean built = false;
+
+    @Autowired
+    public QuestionSearchIndex(QuestionIndex questionIndex)
+    {
+        questionIndex.addListener(this);
+    }
+
+    /**
+     * @return Ids of the questions that contain every word of the search phrase, at least as prefix;
+     * null if the search phrase has no words
+     */
+    @Nullable
+    public BitSet search(String search)
+    {
+        List<String> words = tokenize(search);
+        if (words.isEmpty())
+            return null;
+        ensureBuilt();
+        lock.readLock().lock();
+        try
+        {
+            BitSet result = null;
+            for (String word : words)
+            {
+                BitSet matches = new BitSet();
+                for (BitSet ids : postings.subMap(word, true, word + Character.MAX_VALUE, false).values())
+                    matches.or(ids);
+                if (result == null)
+                    result = matches;
+                else
+                    result.and(matches);
+                if (result.isEmpty())
+                    break;
+            }
+            return result;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * To be called after a question was created or updated
+     */
+    public void update(Question question)
+    {
+        Set<String> tokens = getTokens(question);
+        lock.writeLock().lock();
+        try
+        {
+            if (built)
+                put(question.getId(), tokens);
+            else
+                pending.put(question.getId(), tokens);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void questionChanged(int questionId)
+    {
+        // Updated from the question itself, see update()
+    }
+
+    @Override
+    public void allQuestionsChanged()
+    {
+        lock.writeLock().lock();
+        try
+        {
+            postings.clear();
+            tokensPerQuestion.clear();
+            pending.clear();
+            built = false;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureBuilt()
+    {
+        lock.readLock().lock();
+        try
+        {
+            if (built)
+                return;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        List<Question> questions = questionRepository.findAll();
+        build(questions);
+    }
+
+    void build(List<Question> questions)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            if (built)
+                return;
+            questions.forEach(question -> put(question.getId(), getTokens(question)));
+            pending.forEach(this::put);
+            pending.clear();
+            built = true;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Set<String> getTokens(Question question)
+    {
+        Set<String> tokens = new LinkedHashSet<>();
+        tokens.add(String.valueOf(question.getId()));
+        for (String text : getTexts(question))
+            tokens.addAll(tokenize(text));
+        return tokens;
+    }
+
+    private void put(int id, Set<String> tokens)
+    {
+        Set<String> previous = tokensPerQuestion.put(id, tokens);
+        if (previous != null)
+        {
+            for (String token : previous)
+            {
+                if (tokens.contains(token))
+                    continue;
+                BitSet ids = postings.get(token);
+                ids.clear(id);
+                if (ids.isEmpty())
+                    postings.remove(token);
+            }
+        }
+        for (String token : tokens)
+            postings.computeIfAbsent(token, t -> new BitSet()).set(id);
+    }
+
+    private static List<String> getTexts(Question question)
+    {
+        List<String> texts = new ArrayList<>(List.of(
+            nullToEmpty(question.getQuestion()),
+            nullToEmpty(question.getAnswerA()),
+            nullToEmpty(question.getAnswerB()),
+            nullToEmpty(question.getAnswerC()),
+            nullToEmpty(question.getAnswerD()),
+            nullToEmpty(question.getRemarks())));
+        texts.addAll(question.getTags(false));
+        return texts;
+    }
+
+    private static String nullToEmpty(String text)
+    {
+        return text == null ? "" : text;
+    }
+
+    /**
+     * @return Lowercase words without accents; letters and digits only
+     */
+    static List<String> tokenize(String text)
+    {
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++)
+        {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0)
+            {
+                start = i;
+            }
+            else if (!wordChar && start >= 0)
+            {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -7,11 +7,13 @@ import static org.knvvl.exam.meta.Config.EXAM_CHATGPT_APIKEY;
 import static org.knvvl.exam.meta.Config.EXAM_CHATGPT_INSTRUCTIONS;
 import static org.knvvl.exam.meta.Config.EXAM_CHATGPT_MODEL;
 import static org.knvvl.exam.meta.Config.EXAM_TARGET_LANGUAGE;
-import static org.knvvl.tools.chatgpt.Message.Role.USER;
+import static org.knvvl.exam.services.ExamRepositories.SORT_BY_ID;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,17 +29,20 @@ import org.knvvl.exam.meta.EntityFields;
 import org.knvvl.exam.repos.ChangeRepository;
 import org.knvvl.exam.repos.PictureRepository;
 import org.knvvl.exam.repos.QuestionRepository;
+import org.knvvl.exam.repos.QuestionSpecifications;
 import org.knvvl.exam.repos.RequirementRepository;
 import org.knvvl.exam.repos.TopicRepository;
 import org.knvvl.exam.values.Languages;
 import org.knvvl.exam.values.Languages.Language;
 import org.knvvl.exam.values.CreateEntityResult;
+import org.knvvl.tools.chatgpt.BulkTranslator;
 import org.knvvl.tools.chatgpt.ChatGptConfig;
-import org.knvvl.tools.chatgpt.Message;
 import org.knvvl.tools.chatgpt.Model;
 import org.knvvl.tools.chatgpt.SimpleChatGptClient;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
 import com.google.common.base.Strings;
@@ -61,8 +66,6 @@ public class QuestionService
     @Autowired
     private TextService textService;
     @Autowired
-    private ExamService examService;
-    @Autowired
     private TopicRepository topicRepository;
     @Autowired
     private RequirementRepository requirementRepository;
@@ -74,58 +77,86 @@ public class QuestionService
     private UserService userService;
     @Autowired
     private ChangeDetector changeDetector;
+    @Autowired
+    private QuestionIndex questionIndex;
+    @Autowired
+    private QuestionSearchIndex questionSearchIndex;
+    @Autowired
+    private TranslationGraph translationGraph;
+    @Autowired
+    private TranslationMemory translationMemory;
 
     private EntityFields<Question> questionFields;
+
     /**
-     * Given a question, which languages is it translated to?
+     * Language, topic, requirement, exam and discuss are filtered in one database query; the ids found by the
+     * {@link QuestionSearchIndex} are checked in memory. Questions of an exam are shown in any language, in exam order.
      */
-    private static final Map<Integer, Map<String, Integer>> translationsCache = new HashMap<>();
-
     public Stream<Question> queryQuestions(Sort sort, String language, int topicId, int requirementId, int examId, String search, boolean discuss)
     {
-        List<Question> questions;
+        BitSet matches = questionSearchIndex.search(search);
+        List<Question> questions = questionRepository.findAll(getFilter(language, topicId, requirementId, examId, discuss), sort);
         if (examId != 0)
-            questions = examService.getExamQuestionsForExam(examId).stream().map(ExamQuestion::getQuestion).toList();
-        else
-            questions = Strings.isNullOrEmpty(language)
-                ? questionRepository.findAll(sort)
-                : questionRepository.findByLanguage(language, sort);
-
-        questions.forEach(QuestionService::cacheTranslation);
-
-        String searchLower = search.toLowerCase();
-        return questions.stream()
-            .filter(q -> topicId == 0 || q.getTopic().getId().equals(topicId))
-            .filter(q -> requirementId == 0 || q.getRequirement().getId().equals(requirementId))
-            .filter(q -> q.applySearch(searchLower))
-            .filter(q -> !discuss || q.isDiscuss());
+            questions = inExamOrder(questions, examId);
+        return questions.stream().filter(question -> matches == null || matches.get(question.getId()));
     }
 
-    private static void cacheTranslation(Question question)
+    /**
+     * One page of {@link #queryQuestions}, by id descending. Pages are found by keyset (id below the previous page),
+     * so a page costs the same wherever it is in the list. The questions of an exam are one page, in exam order.
+     * @param beforeId 0 for the first page, else the id of the last question of the previous page
+     * @param pageSize 0 for all questions
+     */
+    public List<Question> queryQuestionsPage(String language, int topicId, int requirementId, int examId, String search, boolean discuss,
+        int beforeId, int pageSize)
     {
-        Integer translates = question.getTranslates();
-        if (translates != null)
+        if (examId != 0)
         {
-            getTranslationsCache(translates).put(question.getLanguage(), question.getId());
+            return beforeId != 0 ? List.of()
+                : queryQuestions(SORT_BY_ID, language, topicId, requirementId, examId, search, discuss).toList();
+        }
+        if (pageSize == 0)
+            return queryQuestions(SORT_BY_ID.descending(), language, topicId, requirementId, examId, search, discuss).toList();
+        Specification<Question> filter = getFilter(language, topicId, requirementId, examId, discuss);
+        BitSet matches = questionSearchIndex.search(search);
+        if (matches == null)
+        {
+            if (beforeId != 0)
+                filter = filter.and(QuestionSpecifications.hasIdBelow(beforeId));
+            return questionRepository.findAll(filter, PageRequest.of(0, pageSize, SORT_BY_ID.descending())).getContent();
         }
-    }
 
-    private static void uncacheTranslation(Question question)
-    {
-        Integer translates = question.getTranslates();
-        if (translates != null)
+        // Each query starts just above the next match of the search, and only matches are kept
+        List<Question> page = new ArrayList<>();
+        int before = beforeId == 0 ? Integer.MAX_VALUE : beforeId;
+        while (page.size() < pageSize)
         {
-            getTranslationsCache(translates).remove(question.getLanguage());
+            int nextMatch = matches.previousSetBit(before - 1);
+            if (nextMatch < 0)
+                break;
+            List<Question> found = questionRepository.findAll(filter.and(QuestionSpecifications.hasIdBelow(nextMatch + 1)),
+                PageRequest.of(0, pageSize, SORT_BY_ID.descending())).getContent();
+            found.stream().filter(question -> matches.get(question.getId())).limit(pageSize - page.size()).forEach(page::add);
+            if (found.size() < pageSize)
+                break;
+            before = found.get(found.size() - 1).getId();
         }
+        return page;
     }
 
-    /**
-     * @param questionId To get tranlsations for
-     * @return Map of translations for the given question: language -> translation
-     */
-    private static Map<String, Integer> getTranslationsCache(Integer questionId)
+    private Specification<Question> getFilter(String language, int topicId, int requirementId, int examId, boolean discuss)
+    {
+        return QuestionSpecifications.filter(examId == 0 ? language : "", topicId, requirementId, examId, discuss);
+    }
+
+    private List<Question> inExamOrder(List<Question> questions, int examId)
     {
-        return translationsCache.computeIfAbsent(questionId, HashMap::new);
+        Map<Integer, Integer> questionIndexes = new HashMap<>();
+        for (ExamQuestion examQuestion : examRepositories.getExamQuestionRepository().findByExamOrderByQuestionIndex(examId))
+            questionIndexes.putIfAbsent(examQuestion.getQuestion().getId(), examQuestion.getQuestionIndex());
+        return questions.stream()
+            .sorted(Comparator.comparing(question -> questionIndexes.getOrDefault(question.getId(), Integer.MAX_VALUE)))
+            .toList();
     }
 
     private int getNewQuestionId()
@@ -160,7 +191,9 @@ public class QuestionService
         questionRepository.save(question);
         changeRepository.saveAll(changes);
         changeDetector.changed();
-        cacheTranslation(question);
+        translationGraph.put(question);
+        questionIndex.update(question);
+        questionSearchIndex.update(question);
         return new CreateEntityResult(question, null);
     }
 
@@ -171,17 +204,21 @@ public class QuestionService
         List<Change> changes = new ArrayList<>();
         Question question = questionRepository.getReferenceById(questionId);
 
-        uncacheTranslation(question);
+        Integer oldTranslates = question.getTranslates();
+        String oldLanguage = question.getLanguage();
         applyAndLogChanges(form, changedByAt, question, changes);
         // Verify that "translates" field points to an existing question
         Integer translates = question.getTranslates();
         if (translates != null && !questionRepository.existsById(translates))
             return "Field 'Translates question' does not refer to an existing question: " + translates;
-        cacheTranslation(question);
+        translationGraph.remove(questionId, oldTranslates, oldLanguage);
+        translationGraph.put(question);
 
         questionRepository.save(question);
         changeRepository.saveAll(changes);
         changeDetector.changed();
+        questionIndex.update(question);
+        questionSearchIndex.update(question);
         return null;
     }
 
@@ -237,7 +274,7 @@ public class QuestionService
         {
             return new CheckCanTranslate("This question is already in language " + targetLanguage, null);
         }
-        var translationId = getTranslationsCache(question.getId()).get(targetLanguage);
+        var translationId = translationGraph.getTranslation(question.getId(), targetLanguage);
         if (translationId != null)
         {
             return new CheckCanTranslate("Already found translation to " + targetLanguage + " for question " + question.getId(), translationId);
@@ -248,34 +285,75 @@ public class QuestionService
     public record CheckCanTranslate(String message, Integer questionIdTranslated) {}
 
     public Question createTranslated(Question question)
+    {
+        return createTranslated(List.of(question), (done, total) -> {}).get(0);
+    }
+
+    /**
+     * Creates translated copies of the given questions, not saved yet. All their texts are translated in one
+     * {@link BulkTranslator} job, so texts of many questions share requests.
+     * @param progress Is told about the texts translated so far
+     */
+    public List<Question> createTranslated(List<Question> questions, BulkTranslator.Progress progress)
     {
         var targetLanguage = Languages.get(textService.get(EXAM_TARGET_LANGUAGE));
-        var translated = new Question();
-        getQuestionFields().getFields().forEach(f -> f.copyValue(question, translated));
-        translated.setTranslates(question.getId());
-        translated.setLanguage(targetLanguage.id());
-        translated.setRemarks("");
-        translated.setIgnore(true);
-        translated.setDiscuss(true);
-
-        getQuestionFields().getFields().stream()
+        List<Question> translations = new ArrayList<>();
+        for (Question question : questions)
+        {
+            var translated = new Question();
+            getQuestionFields().getFields().forEach(f -> f.copyValue(question, translated));
+            translated.setTranslates(question.getId());
+            translated.setLanguage(targetLanguage.id());
+            translated.setRemarks("");
+            translated.setIgnore(true);
+            translated.setDiscuss(true);
+            translations.add(translated);
+        }
+
+        List<EntityField.EntityFieldString<Question>> translatableFields = getQuestionFields().getFields().stream()
             .filter(f -> Question.TRANSLATABLE_FIELDS.contains(f.getField()))
-            .map(EntityField.EntityFieldString.class::cast)
-            .forEach(sf -> sf.setStringValue(translated, translate(sf.toStringValue(question), targetLanguage)));
-        return translated;
+            .map(f -> (EntityField.EntityFieldString<Question>)f)
+            .toList();
+        List<String> texts = new ArrayList<>();
+        for (Question question : questions)
+            translatableFields.forEach(sf -> texts.add(sf.toStringValue(question)));
+        List<String> translatedTexts = translate(texts, targetLanguage, progress);
+        int i = 0;
+        for (Question translated : translations)
+        {
+            for (var sf : translatableFields)
+                sf.setStringValue(translated, translatedTexts.get(i++));
+        }
+        return translations;
     }
 
-    private String translate(String text, Language targetLanguage)
+    /**
+     * Texts found in the {@link TranslationMemory} are not sent to ChatGPT; the others are added to it
+     */
+    private List<String> translate(List<String> texts, Language targetLanguage, BulkTranslator.Progress progress)
     {
         var chatGptClient = createChatGptClient();
-        if (chatGptClient == null)
-            return "";
         var instructionsPattern = textService.get(EXAM_CHATGPT_INSTRUCTIONS);
-        if (Strings.isNullOrEmpty(instructionsPattern))
-            return "";
-        var instructions = instructionsPattern.replace("{0}", targetLanguage.label()).replace("{1}", text);
-        var message = new Message(USER, instructions);
-        return chatGptClient.sendChatMessages(message);
+        if (chatGptClient == null || Strings.isNullOrEmpty(instructionsPattern))
+            return texts.stream().map(text -> "").toList();
+        var modelName = textService.get(EXAM_CHATGPT_MODEL);
+        Map<String, String> keys = new HashMap<>();
+        texts.stream().filter(text -> !text.isEmpty()).forEach(text ->
+            keys.computeIfAbsent(text, t -> TranslationMemory.getKey(t, targetLanguage.id(), modelName, instructionsPattern)));
+        Map<String, String> translations = new HashMap<>(translationMemory.getAll(keys.values()));
+
+        List<String> toSend = keys.keySet().stream().filter(text -> !translations.containsKey(keys.get(text))).toList();
+        if (!toSend.isEmpty())
+        {
+            List<String> sent = BulkTranslator.create(chatGptClient, instructionsPattern).build()
+                .translate(toSend, targetLanguage.label(), progress);
+            Map<String, String> learned = new HashMap<>();
+            for (int i = 0; i < toSend.size(); i++)
+                learned.put(keys.get(toSend.get(i)), sent.get(i));
+            translationMemory.putAll(learned);
+            translations.putAll(learned);
+        }
+        return texts.stream().map(text -> text.isEmpty() ? "" : translations.get(keys.get(text))).toList();
     }
 
     @Nullable
@@ -290,10 +368,44 @@ public class QuestionService
         return new SimpleChatGptClient(ChatGptConfig.create().withApiKey(apiKey).withModel(model).build());
     }
 
-    private List<Change> getChangesForTranslated(Question translated)
+    /**
+     * For background jobs: the questions are loaded here, so their pictures and such can be read while saving the translations
+     * @param onSaved Is told after each saved translation
+     * @return Number of translations saved
+     */
+    @Transactional
+    public int translateQuestions(List<Integer> questionIds, ChangedByAt changedByAt, BulkTranslator.Progress progress, Runnable onSaved)
+    {
+        List<Question> questions = questionRepository.findAllById(questionIds).stream()
+            .filter(question -> checkCanTranslate(question) == null)
+            .toList();
+        List<Question> translations = createTranslated(questions, progress);
+        for (Question translated : translations)
+        {
+            saveTranslated(translated, changedByAt);
+            onSaved.run();
+        }
+        return translations.size();
+    }
+
+    /**
+     * Saves a question from {@link #createTranslated}, as a new question
+     */
+    @Transactional
+    public void saveTranslated(Question translated, ChangedByAt changedByAt)
+    {
+        translated.setId(getNewQuestionId());
+        questionRepository.save(translated);
+        changeRepository.saveAll(getChangesForTranslated(translated, changedByAt));
+        changeDetector.changed();
+        translationGraph.put(translated);
+        questionIndex.update(translated);
+        questionSearchIndex.update(translated);
+    }
+
+    private List<Change> getChangesForTranslated(Question translated, ChangedByAt changedByAt)
     {
         List<Change> changes = new ArrayList<>();
-        var changedByAt = new ChangedByAt(userService.getCurrentUser());
         for (var field : getQuestionFields().getFields())
         {
             String newValue = field.toStringValue(translated);
@@ -0,0 +1,124 @@
+package org.knvvl.exam.services;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.knvvl.exam.entities.Question;
+import org.knvvl.exam.repos.QuestionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Which questions are translated to which language: per original question, its translations by language.
+ * Loaded at startup with one query on the "translates" and "language" columns only, and kept up to date
+ * by {@link QuestionService} on every write; reloaded after import or restore.
+ */
+@Service
+public class TranslationGraph implements QuestionIndex.Listener
+{
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    /**
+     * Original question id -> language -> translation id. The language maps are immutable; a change replaces one atomically.
+     * Written under the lock of this graph, so no write gets lost in a reload; a reload swaps in a new map.
+     */
+    private volatile Map<Integer, Map<String, Integer>> translations = new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+
+    @Autowired
+    public TranslationGraph(QuestionIndex questionIndex)
+    {
+        questionIndex.addListener(this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAtStartup()
+    {
+        ensureLoaded();
+    }
+
+    /**
+     * @return The id of the translation of the given question to the given language, or null if there is none
+     */
+    @Nullable
+    public Integer getTranslation(int questionId, String language)
+    {
+        ensureLoaded();
+        return translations.getOrDefault(questionId, Map.of()).get(language);
+    }
+
+    /**
+     * To be called after a question was created or updated
+     */
+    public synchronized void put(Question question)
+    {
+        ensureLoaded();
+        put(translations, question.getId(), question.getTranslates(), question.getLanguage());
+    }
+
+    /**
+     * To be called before a question is updated or deleted, with its values before the change
+     */
+    public synchronized void remove(int questionId, @Nullable Integer translates, String language)
+    {
+        ensureLoaded();
+        if (translates == null)
+            return;
+        translations.computeIfPresent(translates, (original, byLanguage) -> {
+            if (!Integer.valueOf(questionId).equals(byLanguage.get(language)))
+                return byLanguage;
+            Map<String, Integer> changed = new HashMap<>(byLanguage);
+            changed.remove(language);
+            return changed.isEmpty() ? null : Map.copyOf(changed);
+        });
+    }
+
+    @Override
+    public void questionChanged(int questionId)
+    {
+        // Updated from the question itself, see put() and remove()
+    }
+
+    @Override
+    public synchronized void allQuestionsChanged()
+    {
+        loaded = false;
+    }
+
+    private static void put(Map<Integer, Map<String, Integer>> translations, int questionId, @Nullable Integer translates, String language)
+    {
+        if (translates == null)
+            return;
+        translations.compute(translates, (original, byLanguage) -> {
+            Map<String, Integer> changed = byLanguage == null ? new HashMap<>() : new HashMap<>(byLanguage);
+            changed.put(language, questionId);
+            return Map.copyOf(changed);
+        });
+    }
+
+    private void ensureLoaded()
+    {
+        if (loaded)
+            return;
+        synchronized (this)
+        {
+            if (!loaded)
+                load(questionRepository.findByTranslatesNotNull());
+        }
+    }
+
+    synchronized void load(List<Question.TranslationView> views)
+    {
+        Map<Integer, Map<String, Integer>> loading = new ConcurrentHashMap<>();
+        views.forEach(view -> put(loading, view.getId(), view.getTranslates(), view.getLanguage()));
+        translations = loading;
+        loaded = true;
+    }
+}
@@ -0,0 +1,120 @@
+package org.knvvl.exam.services;
+
+import static org.knvvl.exam.services.ExamRepositories.SORT_BY_ID;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.UnaryOperator;
+
+import org.knvvl.exam.entities.Change.ChangedByAt;
+import org.knvvl.exam.entities.Question;
+import org.knvvl.exam.repos.QuestionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Translates a whole exam or a set of questions in the background, one job at a time, and saves the translations
+ * as new questions to discuss. Questions that cannot be translated, like those translated before, are skipped.
+ * The job runs as the user that started it, and loads the questions itself.
+ */
+@Service
+public class TranslationJobService
+{
+    @Autowired private QuestionService questionService;
+    @Autowired private QuestionRepository questionRepository;
+    @Autowired private UserService userService;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "translation-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Status status = new Status(false, 0, 0, 0, 0, null);
+
+    /**
+     * @param textsDone Distinct texts translated so far
+     * @param message Null while running and after success, else why the job failed
+     */
+    public record Status(boolean running, int questions, int textsDone, int textsTotal, int saved, String message)
+    {
+        Status withTexts(int done, int total)
+        {
+            // Batches may report out of order
+            return new Status(running, questions, Math.max(textsDone, done), total, saved, message);
+        }
+
+        Status withSaved(int saved)
+        {
+            return new Status(running, questions, textsDone, textsTotal, saved, message);
+        }
+
+        Status finished(String message)
+        {
+            return new Status(false, questions, textsDone, textsTotal, saved, message);
+        }
+    }
+
+    @PreDestroy
+    void shutdown()
+    {
+        runner.shutdownNow();
+    }
+
+    public Status getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * @param examId The exam to translate the questions of, or 0 for the given questions
+     * @return Null if the job was started, else why not
+     */
+    public synchronized String start(int examId, List<Integer> requestedIds)
+    {
+        if (status.running())
+            return "Already translating " + status.questions() + " questions";
+        List<Integer> questionIds = (examId == 0
+            ? questionRepository.findAllById(requestedIds).stream()
+            : questionService.queryQuestions(SORT_BY_ID, "", 0, 0, examId, "", false))
+            .filter(question -> questionService.checkCanTranslate(question) == null)
+            .map(Question::getId)
+            .toList();
+        if (questionIds.isEmpty())
+            return "No questions to translate";
+        var changedByAt = new ChangedByAt(userService.getCurrentUser());
+        status = new Status(true, questionIds.size(), 0, 0, 0, null);
+        runner.execute(new DelegatingSecurityContextRunnable(() -> run(questionIds, changedByAt)));
+        return null;
+    }
+
+    private void run(List<Integer> questionIds, ChangedByAt changedByAt)
+    {
+        try
+        {
+            long start = System.currentTimeMillis();
+            int saved = questionService.translateQuestions(questionIds, changedByAt,
+                (done, total) -> update(s -> s.withTexts(done, total)),
+                () -> update(s -> s.withSaved(s.saved() + 1)));
+            System.out.println("Translated " + saved + " questions in " + (System.currentTimeMillis() - start) + " ms");
+            update(s -> s.finished(null));
+        }
+        catch (RuntimeException e)
+        {
+            e.printStackTrace();
+            update(s -> s.finished("Translation failed, no questions saved: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Progress is reported from the threads that send the requests
+     */
+    private synchronized void update(UnaryOperator<Status> change)
+    {
+        status = change.apply(status);
+    }
+}
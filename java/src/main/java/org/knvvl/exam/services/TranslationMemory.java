@@ -0,0 +1,88 @@
+package org.knvvl.exam.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.knvvl.exam.entities.TranslationMemoryEntry;
+import org.knvvl.exam.repos.TranslationMemoryRepository;
+import org.knvvl.tools.generic.HashBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Texts translated by ChatGPT before, so a text that occurs in many questions (like "Geen van bovenstaande.")
+ * is sent only once. Stored in a table by a hash of the text, target language, model and instructions,
+ * with the most recently used ones in memory.
+ */
+@Service
+public class TranslationMemory
+{
+    private static final int MAX_ENTRIES = 10000;
+
+    @Autowired
+    private TranslationMemoryRepository translationMemoryRepository;
+
+    private final Map<String, String> recent = new LinkedHashMap<>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest)
+        {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    public static String getKey(String text, String targetLanguage, String model, String instructions)
+    {
+        return new HashBuilder().add(text).add(targetLanguage).add(model).add(instructions).build();
+    }
+
+    /**
+     * @return The translations found for the given keys, by key
+     */
+    public Map<String, String> getAll(Collection<String> keys)
+    {
+        Map<String, String> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        synchronized (recent)
+        {
+            for (String key : keys)
+            {
+                String translated = recent.get(key);
+                if (translated != null)
+                    found.put(key, translated);
+                else
+                    missing.add(key);
+            }
+        }
+        if (missing.isEmpty())
+            return found;
+        List<TranslationMemoryEntry> entries = translationMemoryRepository.findAllById(missing);
+        synchronized (recent)
+        {
+            for (TranslationMemoryEntry entry : entries)
+            {
+                found.put(entry.getHash(), entry.getTranslated());
+                recent.put(entry.getHash(), entry.getTranslated());
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param translations Translations by key
+     */
+    public void putAll(Map<String, String> translations)
+    {
+        translationMemoryRepository.saveAll(translations.entrySet().stream()
+            .map(e -> new TranslationMemoryEntry(e.getKey(), e.getValue()))
+            .toList());
+        synchronized (recent)
+        {
+            recent.putAll(translations);
+        }
+    }
+}
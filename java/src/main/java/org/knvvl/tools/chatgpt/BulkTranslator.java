@@ -0,0 +1,293 @@
+package org.knvvl.tools.chatgpt;
+
+import static org.knvvl.tools.chatgpt.Message.Role.SYSTEM;
+import static org.knvvl.tools.chatgpt.Message.Role.USER;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+/**
+ * <p>
+ * Translates many texts with few requests. The texts are packed into one prompt per batch, as a json object of numbered texts,
+ * and the batches are sent in parallel over one client. The client keeps them within the rate limits of the api.
+ * </p>
+ *
+ * <pre>
+ *     BulkTranslator translator = BulkTranslator.create(client, "Translate to {0}: {1}")
+ *         .withMaxConcurrent(8)
+ *         .build();
+ *     List&lt;String&gt; translated = translator.translate(texts, "English", (done, total) -&gt; LOGGER.info("{}/{}", done, total));
+ * </pre>
+ *
+ * <p>
+ * Empty texts are not sent, and equal texts are sent once. Texts missing from the answer for a batch are sent again one by one.
+ * </p>
+ */
+public final class BulkTranslator
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkTranslator.class);
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+    private static final String BATCH_INSTRUCTIONS = "The text to translate is a JSON object of numbered texts. " +
+        "Translate each text separately as instructed, and answer only with a JSON object with the same numbers and the translated texts. " +
+        "Do not add markdown.";
+
+    private final SimpleChatGptClient client;
+    private final String instructionsPattern;
+    private final int maxConcurrent;
+    private final int maxTextsPerRequest;
+    private final int maxCharsPerRequest;
+
+    /**
+     * Receives the progress of {@link #translate}, from the threads that send the requests
+     */
+    public interface Progress
+    {
+        /**
+         * @param done Number of distinct texts translated so far
+         * @param total Number of distinct texts to translate
+         */
+        void translated(int done, int total);
+    }
+
+    private BulkTranslator(BulkTranslatorBuilder builder)
+    {
+        client = builder.client;
+        instructionsPattern = builder.instructionsPattern;
+        maxConcurrent = builder.maxConcurrent;
+        maxTextsPerRequest = builder.maxTextsPerRequest;
+        maxCharsPerRequest = builder.maxCharsPerRequest;
+    }
+
+    /**
+     * @param client The client to send all requests with
+     * @param instructionsPattern The instructions for the translation, with {0} for the target language and {1} for the text
+     * @return The builder
+     */
+    public static BulkTranslatorBuilder create(@Nonnull SimpleChatGptClient client, @Nonnull String instructionsPattern)
+    {
+        return new BulkTranslatorBuilder(client, instructionsPattern);
+    }
+
+    /**
+     * @param texts The texts to translate
+     * @param targetLanguage The language to translate to, as it is put in the instructions
+     * @param progress Is told after each batch
+     * @return The translated texts, in the same order
+     * @throws ChatGptException When a request fails, or a text is not translated
+     */
+    public List<String> translate(List<String> texts, String targetLanguage, Progress progress)
+    {
+        List<String> distinct = texts.stream().filter(text -> !text.isEmpty()).distinct().toList();
+        List<List<String>> batches = createBatches(distinct);
+        Map<String, String> translations = new ConcurrentHashMap<>();
+        AtomicInteger done = new AtomicInteger();
+        ExecutorService senders = Executors.newFixedThreadPool(Math.max(1, Math.min(maxConcurrent, batches.size())), runnable -> {
+            Thread thread = new Thread(runnable, "chatgpt-translate");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try
+        {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (List<String> batch : batches)
+            {
+                futures.add(senders.submit(() -> {
+                    translateBatch(batch, targetLanguage, translations);
+                    progress.translated(done.addAndGet(batch.size()), distinct.size());
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures)
+            {
+                future.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new ChatGptException("Interrupted while translating", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw e.getCause() instanceof ChatGptException chatGptException ? chatGptException
+                : new ChatGptException("Failed to translate: " + e.getCause().getMessage(), e.getCause());
+        }
+        finally
+        {
+            senders.shutdownNow();
+        }
+        return texts.stream().map(text -> text.isEmpty() ? "" : translations.get(text)).toList();
+    }
+
+    List<List<String>> createBatches(List<String> texts)
+    {
+        List<List<String>> batches = new ArrayList<>();
+        List<String> batch = new ArrayList<>();
+        int chars = 0;
+        for (String text : texts)
+        {
+            if (!batch.isEmpty() && (batch.size() == maxTextsPerRequest || chars + text.length() > maxCharsPerRequest))
+            {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                chars = 0;
+            }
+            batch.add(text);
+            chars += text.length();
+        }
+        if (!batch.isEmpty())
+        {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    private void translateBatch(List<String> batch, String targetLanguage, Map<String, String> translations)
+    {
+        Map<String, String> answers = send(batch, targetLanguage);
+        for (int i = 0; i < batch.size(); i++)
+        {
+            String text = batch.get(i);
+            String translated = answers.get(String.valueOf(i + 1));
+            if (translated == null && batch.size() > 1)
+            {
+                LOGGER.warn("Text {} is missing in the answer for a batch of {}, translating it separately", i + 1, batch.size());
+                translated = send(List.of(text), targetLanguage).get("1");
+            }
+            if (translated == null)
+            {
+                throw new ChatGptException("No translation to " + targetLanguage + " for: " + text);
+            }
+            translations.put(text, translated);
+        }
+    }
+
+    private Map<String, String> send(List<String> batch, String targetLanguage)
+    {
+        JsonObject numbered = new JsonObject();
+        for (int i = 0; i < batch.size(); i++)
+        {
+            numbered.addProperty(String.valueOf(i + 1), batch.get(i));
+        }
+        String instructions = instructionsPattern.replace("{0}", targetLanguage).replace("{1}", GSON.toJson(numbered));
+        String answer = client.sendChatMessagesForMarkDown(new Message(SYSTEM, BATCH_INSTRUCTIONS), new Message(USER, instructions));
+        return parseAnswer(answer);
+    }
+
+    /**
+     * @return The texts by number, empty if the answer is no JSON object
+     */
+    static Map<String, String> parseAnswer(String answer)
+    {
+        Map<String, String> texts = new HashMap<>();
+        // The object may be wrapped in a markdown code block
+        int start = answer.indexOf('{');
+        int end = answer.lastIndexOf('}');
+        if (start < 0 || end < start)
+        {
+            return texts;
+        }
+        try
+        {
+            JsonObject object = GSON.fromJson(answer.substring(start, end + 1), JsonObject.class);
+            for (Map.Entry<String, JsonElement> entry : object.entrySet())
+            {
+                if (entry.getValue().isJsonPrimitive())
+                {
+                    texts.put(entry.getKey(), entry.getValue().getAsString());
+                }
+            }
+        }
+        catch (JsonParseException e)
+        {
+            LOGGER.warn("Answer is no JSON object: {}", answer);
+        }
+        return texts;
+    }
+
+    /**
+     * Builder for the translator
+     */
+    public static final class BulkTranslatorBuilder
+    {
+        private final SimpleChatGptClient client;
+        private final String instructionsPattern;
+        private int maxConcurrent = 8;
+        private int maxTextsPerRequest = 40;
+        private int maxCharsPerRequest = 6000;
+
+        private BulkTranslatorBuilder(SimpleChatGptClient client, String instructionsPattern)
+        {
+            this.client = client;
+            this.instructionsPattern = instructionsPattern;
+        }
+
+        /**
+         * @param maxConcurrent Number of requests sent at the same time. Default: 8
+         * @return The builder
+         */
+        public BulkTranslatorBuilder withMaxConcurrent(int maxConcurrent)
+        {
+            this.maxConcurrent = checkPositive(maxConcurrent, "maxConcurrent");
+            return this;
+        }
+
+        /**
+         * @param maxTextsPerRequest Number of texts packed in one request. Default: 40
+         * @return The builder
+         */
+        public BulkTranslatorBuilder withMaxTextsPerRequest(int maxTextsPerRequest)
+        {
+            this.maxTextsPerRequest = checkPositive(maxTextsPerRequest, "maxTextsPerRequest");
+            return this;
+        }
+
+        /**
+         * A single longer text is still sent, in a request of its own.
+         *
+         * @param maxCharsPerRequest Number of characters of the texts packed in one request. Default: 6000
+         * @return The builder
+         */
+        public BulkTranslatorBuilder withMaxCharsPerRequest(int maxCharsPerRequest)
+        {
+            this.maxCharsPerRequest = checkPositive(maxCharsPerRequest, "maxCharsPerRequest");
+            return this;
+        }
+
+        /**
+         * @return The new translator
+         */
+        public BulkTranslator build()
+        {
+            return new BulkTranslator(this);
+        }
+
+        private static int checkPositive(int value, String name)
+        {
+            if (value <= 0)
+            {
+                throw new IllegalArgumentException(name + " should be positive");
+            }
+            return value;
+        }
+    }
+}
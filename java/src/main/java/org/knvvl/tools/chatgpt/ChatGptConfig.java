@@ -9,16 +9,22 @@ package org.knvvl.tools.chatgpt;
 public final class ChatGptConfig
 {
     public static final float DEFAULT_TEMPERATURE = 1;  // ChatGPT default
+    public static final int DEFAULT_REQUESTS_PER_MINUTE = 500; // Lowest paid tier for gpt-4o-mini
+    public static final int DEFAULT_TOKENS_PER_MINUTE = 200_000;
 
     private final String apiKey;
     private final Model model; 
     private final float temperature;
+    private final int requestsPerMinute;
+    private final int tokensPerMinute;
 
     private ChatGptConfig(ChatGptConfigBuilder builder)
     {
         this.model = builder.model;
         this.temperature = builder.temperature;
         this.apiKey = builder.apiKey;
+        this.requestsPerMinute = builder.requestsPerMinute;
+        this.tokensPerMinute = builder.tokensPerMinute;
     }
 
     /**
@@ -54,6 +60,22 @@ public final class ChatGptConfig
         return apiKey;
     }
 
+    /**
+     * @return The requests per minute the client stays within, 0 for no limit
+     */
+    public int getRequestsPerMinute()
+    {
+        return requestsPerMinute;
+    }
+
+    /**
+     * @return The tokens per minute the client stays within, 0 for no limit
+     */
+    public int getTokensPerMinute()
+    {
+        return tokensPerMinute;
+    }
+
     /**
      * Builder for the config
      */
@@ -62,6 +84,8 @@ public final class ChatGptConfig
         private Model model = Model.GPT_4O_MINI; 
         private float temperature = DEFAULT_TEMPERATURE;
         private String apiKey;
+        private int requestsPerMinute = DEFAULT_REQUESTS_PER_MINUTE;
+        private int tokensPerMinute = DEFAULT_TOKENS_PER_MINUTE;
         
         private ChatGptConfigBuilder()
         {            
@@ -106,6 +130,27 @@ public final class ChatGptConfig
             return this;
         }
 
+        /**
+         * The rate limits of the OpenAI organization for the model, see https://platform.openai.com/settings/organization/limits.
+         * When not specified the limits of the lowest paid tier for gpt-4o-mini are used.
+         * Clients with the same api key share one limiter, so use the limits of the model with the lowest ones.
+         * 
+         * @param requestsPerMinute Requests per minute, 0 for no limit
+         * @param tokensPerMinute Tokens per minute, 0 for no limit
+         * @return The builder
+         */
+        public ChatGptConfigBuilder withRateLimits(int requestsPerMinute, int tokensPerMinute)
+        {
+            if (requestsPerMinute < 0 || tokensPerMinute < 0)
+            {
+                throw new IllegalArgumentException("Rate limits should not be negative");
+            }
+
+            this.requestsPerMinute = requestsPerMinute;
+            this.tokensPerMinute = tokensPerMinute;
+            return this;
+        }
+
         /**
          * @return The new config
          */
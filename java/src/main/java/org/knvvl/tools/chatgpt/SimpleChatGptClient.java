@@ -2,6 +2,9 @@ package org.knvvl.tools.chatgpt;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnull;
 
@@ -10,7 +13,9 @@ import org.slf4j.LoggerFactory;
 
 import org.knvvl.tools.chatgpt.Json.ChatResponse;
 import org.knvvl.tools.chatgpt.Json.ModelsResponse;
+import org.knvvl.tools.generic.http.RateLimiter;
 import org.knvvl.tools.generic.http.Request;
+import org.knvvl.tools.generic.http.RequestExecutor;
 import org.knvvl.tools.generic.http.SimpleHttpClient;
 
 /**
@@ -20,6 +25,22 @@ public class SimpleChatGptClient extends SimpleHttpClient
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(SimpleChatGptClient.class);
     private static final String ROOT_URL = "https://api.openai.com/v1/";
+    private static final int MAX_RETRIES = 6;
+
+    /**
+     * The rate limits are per account, so all clients for a root url share one executor. It is replaced when
+     * the api key or the limits change, so a rotated key does not keep the old executor alive.
+     */
+    private static final Map<String, AccountExecutor> EXECUTORS = new ConcurrentHashMap<>();
+
+    private record AccountExecutor(String apiKey, int requestsPerMinute, int tokensPerMinute, RequestExecutor executor)
+    {
+        boolean isFor(ChatGptConfig config)
+        {
+            return apiKey.equals(config.getApiKey())
+                && requestsPerMinute == config.getRequestsPerMinute() && tokensPerMinute == config.getTokensPerMinute();
+        }
+    }
 
     private final ChatGptConfig config;
 
@@ -53,13 +74,38 @@ public class SimpleChatGptClient extends SimpleHttpClient
      */
     public SimpleChatGptClient(@Nonnull ChatGptConfig config)
     {
-        super(ROOT_URL);
+        this(ROOT_URL, config);
+    }
+
+    /**
+     * Create a client for another root url than the OpenAI api, like a proxy or a local server in tests
+     * 
+     * @param rootUrl The root url, like https://api.openai.com/v1/
+     * @param config Additional config
+     */
+    public SimpleChatGptClient(@Nonnull String rootUrl, @Nonnull ChatGptConfig config)
+    {
+        // All ChatGPT clients share the connections to the api
+        super(rootUrl, Config.builder().withSharedClient(true).withHttp2(true).build());
 
         setDefaultHeaders(Map.of(Request.HEADER_AUTHORIZATION, Request.BEARER_PREFIX + config.getApiKey()));
+        setRequestExecutor(EXECUTORS.compute(rootUrl, (url, current) -> current != null && current.isFor(config) ? current
+            : new AccountExecutor(config.getApiKey(), config.getRequestsPerMinute(), config.getTokensPerMinute(), createRequestExecutor(config)))
+            .executor());
 
         this.config = config;
     }
 
+    private static RequestExecutor createRequestExecutor(ChatGptConfig config)
+    {
+        return RequestExecutor.builder()
+            .withMaxRetries(MAX_RETRIES)
+            .withRetryStatuses(408, 429, 500, 502, 503, 504)
+            .withRetryConnectionErrors(true)
+            .withRateLimiter(RateLimiter.perMinute(config.getRequestsPerMinute(), config.getTokensPerMinute(), RateLimiter::estimateTokens))
+            .build();
+    }
+
     /**
      * <p>
      * Sent the specified messages to chatgpt via the completions api 
@@ -95,7 +141,7 @@ public class SimpleChatGptClient extends SimpleHttpClient
      * @param messages The messages that start the conversation
      * @return The message from the assistant as markdown (default of OpenAi API)
      */
-    private String sendChatMessagesForMarkDown(Message... messages)
+    public String sendChatMessagesForMarkDown(Message... messages)
     {
         try
         {
@@ -112,6 +158,30 @@ public class SimpleChatGptClient extends SimpleHttpClient
         }
     }
 
+    /**
+     * Same as {@link #sendChatMessagesForMarkDown(Message...)}, without waiting for the answer.
+     * Many requests can be sent this way over the shared connections.
+     * 
+     * @param messages The messages that start the conversation
+     * @return The message from the assistant as markdown, or completed with a ChatGptException
+     */
+    public CompletableFuture<String> sendChatMessagesForMarkDownAsync(Message... messages)
+    {
+        String request = Json.createRequest(config, messages);
+        LOGGER.debug("ChatGPT Request: {}", request);
+        return postForStringAsync("chat/completions", request, Request.CONTENT_TYPE_JSON)
+            .handle((response, e) -> {
+                if (e != null)
+                {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    throw cause instanceof RuntimeException runtimeException ? ChatGptException.from(runtimeException)
+                        : new ChatGptException(cause.getMessage(), cause);
+                }
+                LOGGER.debug("ChatGPT Response {}", response);
+                return ChatResponse.fromJson(response).choices().get(0).message().content();
+            });
+    }
+
     /**
      * @return The available models
      */
@@ -0,0 +1,50 @@
+package org.knvvl.tools.generic;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Builds a SHA-256 content hash, e.g. as cache key. Add every input, in a fixed order.
+ *
+ * <pre>
+ *     String key = new HashBuilder().add(text).add(language).build();
+ * </pre>
+ */
+public final class HashBuilder
+{
+    private final MessageDigest digest;
+
+    public HashBuilder()
+    {
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param value Added as its string value, separated from the next one
+     * @return The builder
+     */
+    public HashBuilder add(Object value)
+    {
+        digest.update(String.valueOf(value).getBytes(UTF_8));
+        digest.update((byte)0);
+        return this;
+    }
+
+    /**
+     * @return The hash as 64 hex characters
+     */
+    public String build()
+    {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
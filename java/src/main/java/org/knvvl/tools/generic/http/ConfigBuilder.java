@@ -25,6 +25,8 @@ public final class ConfigBuilder
     private boolean followRedirects;
     private boolean ignoreSslWarnings;
     private int maxNumberOfRetries;
+    private boolean sharedClient;
+    private boolean http2;
     private final Map<String, String> fixedHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
 
     ConfigBuilder()
@@ -90,6 +92,10 @@ public final class ConfigBuilder
      */
     public SimpleHttpClient.Config build()
     {
+        if (sharedClient && supportCookies)
+        {
+            throw new IllegalStateException("A shared client cannot support cookies");
+        }
         return new ConfigImpl(this);
     }
 
@@ -131,7 +137,7 @@ public final class ConfigBuilder
     }
 
     /**
-     * When the client returns a 503 (Server not available) it will retry the request for this number of times.
+     * When the client returns a 503 (Server not available) it will retry the request for this number of times, with exponential backoff.
      * @param maxNumberOfRetries Max number of retries. Default: 10
      * @return The builder
      */
@@ -141,6 +147,31 @@ public final class ConfigBuilder
         return this;
     }
 
+    /**
+     * Share one JDK HttpClient with all clients with the same settings, so connections and TLS sessions are reused.
+     * Cannot be combined with cookies.
+     * 
+     * @param sharedClient Share the JDK HttpClient. Default: false
+     * @return The builder
+     */
+    public ConfigBuilder withSharedClient(boolean sharedClient)
+    {
+        this.sharedClient = sharedClient;
+        return this;
+    }
+
+    /**
+     * Try HTTP/2, so parallel requests to the same server share one connection.
+     * 
+     * @param http2 Try HTTP/2. Default: false (HTTP/1.1)
+     * @return The builder
+     */
+    public ConfigBuilder withHttp2(boolean http2)
+    {
+        this.http2 = http2;
+        return this;
+    }
+
     /**
      * Add a header that will always be added to every request
      * 
@@ -160,6 +191,8 @@ public final class ConfigBuilder
         private final boolean followRedirects;
         private final boolean ignoreSslWarnings;
         private final int maxNumberOfRetries;
+        private final boolean sharedClient;
+        private final boolean http2;
         private final Map<String, String> fixedHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
 
         ConfigImpl(ConfigBuilder builder)
@@ -168,6 +201,8 @@ public final class ConfigBuilder
             followRedirects = builder.followRedirects;
             ignoreSslWarnings = builder.ignoreSslWarnings;
             maxNumberOfRetries = builder.maxNumberOfRetries;
+            sharedClient = builder.sharedClient;
+            http2 = builder.http2;
             fixedHeaders.putAll(builder.fixedHeaders);
         }
 
@@ -200,5 +235,17 @@ public final class ConfigBuilder
         {
             return fixedHeaders;
         }
+
+        @Override
+        public boolean sharedClient()
+        {
+            return sharedClient;
+        }
+
+        @Override
+        public boolean http2()
+        {
+            return http2;
+        }
     }
 }
@@ -0,0 +1,178 @@
+package org.knvvl.tools.generic.http;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * <p>Client side limit of requests and tokens per minute, like the limits of the OpenAI api, with a token bucket for each.
+ * A bucket holds at most ten seconds worth of its limit, so a burst cannot trip a limit that the server checks
+ * over a shorter period than a minute.</p>
+ *
+ * <p>A request reserves its cost right away and is told how long to wait, so requests are sent in the order they
+ * came in. The buckets follow the remaining requests and tokens that the server reports in the
+ * <code>x-ratelimit-remaining-requests</code> and <code>x-ratelimit-remaining-tokens</code> headers.</p>
+ *
+ * <pre>
+ *     RateLimiter limiter = RateLimiter.perMinute(500, 200000, RateLimiter::estimateTokens);
+ * </pre>
+ */
+public final class RateLimiter
+{
+    static final String HEADER_REMAINING_REQUESTS = "x-ratelimit-remaining-requests";
+    static final String HEADER_REMAINING_TOKENS = "x-ratelimit-remaining-tokens";
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final long BURST_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final Bucket requests;
+    private final Bucket tokens;
+    private final ToIntFunction<HttpRequest> tokenCost;
+    private long pausedUntil = System.nanoTime();
+
+    private RateLimiter(int requestsPerMinute, int tokensPerMinute, ToIntFunction<HttpRequest> tokenCost)
+    {
+        long now = System.nanoTime();
+        this.requests = requestsPerMinute == 0 ? null : new Bucket(requestsPerMinute, now);
+        this.tokens = tokensPerMinute == 0 ? null : new Bucket(tokensPerMinute, now);
+        this.tokenCost = tokenCost;
+    }
+
+    /**
+     * @param requestsPerMinute Requests per minute, 0 for no limit
+     * @param tokensPerMinute Tokens per minute, 0 for no limit
+     * @param tokenCost The tokens a request counts for
+     * @return The limiter
+     */
+    public static RateLimiter perMinute(int requestsPerMinute, int tokensPerMinute, ToIntFunction<HttpRequest> tokenCost)
+    {
+        if (requestsPerMinute < 0 || tokensPerMinute < 0)
+        {
+            throw new IllegalArgumentException("Limits should not be negative");
+        }
+        return new RateLimiter(requestsPerMinute, tokensPerMinute, tokenCost);
+    }
+
+    /**
+     * Rough estimate for chat completions: a token is about four characters, and the answer is about as long as the question.
+     *
+     * @param request The request
+     * @return The estimated tokens of the request and its answer
+     */
+    public static int estimateTokens(HttpRequest request)
+    {
+        long length = request.bodyPublisher().map(HttpRequest.BodyPublisher::contentLength).orElse(0L);
+        return (int)Math.min(Integer.MAX_VALUE, 2 * Math.max(0, length) / CHARS_PER_TOKEN);
+    }
+
+    /**
+     * Reserves the cost of the request
+     *
+     * @param request The request to send
+     * @return The nanoseconds to wait before sending it
+     */
+    public long reserve(HttpRequest request)
+    {
+        return reserve(tokenCost.applyAsInt(request), System.nanoTime());
+    }
+
+    synchronized long reserve(int tokenCost, long now)
+    {
+        long wait = Math.max(0, pausedUntil - now);
+        if (requests != null)
+        {
+            wait = Math.max(wait, requests.reserve(1, now));
+        }
+        if (tokens != null)
+        {
+            wait = Math.max(wait, tokens.reserve(tokenCost, now));
+        }
+        return wait;
+    }
+
+    /**
+     * No request is sent for the given time, for instance after a 429 with a Retry-After header
+     *
+     * @param nanos Nanoseconds from now
+     */
+    public synchronized void pause(long nanos)
+    {
+        pausedUntil = Math.max(pausedUntil, System.nanoTime() + nanos);
+    }
+
+    /**
+     * Lowers the buckets to what the server says is remaining
+     *
+     * @param response Any response
+     */
+    public void update(HttpResponse<?> response)
+    {
+        update(getLong(response, HEADER_REMAINING_REQUESTS), getLong(response, HEADER_REMAINING_TOKENS), System.nanoTime());
+    }
+
+    synchronized void update(Optional<Long> remainingRequests, Optional<Long> remainingTokens, long now)
+    {
+        if (requests != null)
+        {
+            remainingRequests.ifPresent(remaining -> requests.limit(remaining, now));
+        }
+        if (tokens != null)
+        {
+            remainingTokens.ifPresent(remaining -> tokens.limit(remaining, now));
+        }
+    }
+
+    private static Optional<Long> getLong(HttpResponse<?> response, String header)
+    {
+        try
+        {
+            return response.headers().firstValue(header).map(String::trim).map(Long::valueOf);
+        }
+        catch (NumberFormatException e)
+        {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Filled continuously at the rate per minute, up to ten seconds worth. May go below zero by reservations.
+     */
+    private static final class Bucket
+    {
+        private final double perNano;
+        private final double capacity;
+        private double available;
+        private long updatedAt;
+
+        Bucket(int perMinute, long now)
+        {
+            perNano = perMinute / (double)TimeUnit.MINUTES.toNanos(1);
+            capacity = Math.max(1, perNano * BURST_NANOS);
+            available = capacity;
+            updatedAt = now;
+        }
+
+        long reserve(int amount, long now)
+        {
+            refill(now);
+            available -= amount;
+            return available >= 0 ? 0 : (long)Math.ceil(-available / perNano);
+        }
+
+        void limit(long remaining, long now)
+        {
+            refill(now);
+            available = Math.min(available, remaining);
+        }
+
+        private void refill(long now)
+        {
+            if (now > updatedAt)
+            {
+                available = Math.min(capacity, available + (now - updatedAt) * perNano);
+                updatedAt = now;
+            }
+        }
+    }
+}
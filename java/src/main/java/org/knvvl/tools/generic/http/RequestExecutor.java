@@ -0,0 +1,265 @@
+package org.knvvl.tools.generic.http;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Sends requests for the {@link SimpleHttpClient}: within the limits of an optional {@link RateLimiter}, and
+ * retried on the given statuses with exponential backoff and jitter, or after the time in the <code>Retry-After</code>
+ * header. Waiting is scheduled, it does not block a thread.</p>
+ *
+ * <pre>
+ *     RequestExecutor executor = RequestExecutor.builder()
+ *         .withMaxRetries(6)
+ *         .withRetryStatuses(429, 500, 502, 503, 504)
+ *         .withRateLimiter(RateLimiter.perMinute(500, 200000, RateLimiter::estimateTokens))
+ *         .build();
+ * </pre>
+ */
+public final class RequestExecutor
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestExecutor.class);
+    static final String HEADER_RETRY_AFTER = "Retry-After";
+    static final String HEADER_RETRY_AFTER_MS = "retry-after-ms"; // Sent by OpenAI, more precise than Retry-After
+
+    private final int maxRetries;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Set<Integer> retryStatuses;
+    private final boolean retryConnectionErrors;
+    private final RateLimiter rateLimiter;
+
+    private RequestExecutor(RequestExecutorBuilder builder)
+    {
+        maxRetries = builder.maxRetries;
+        initialBackoffNanos = builder.initialBackoff.toNanos();
+        maxBackoffNanos = builder.maxBackoff.toNanos();
+        retryStatuses = Set.copyOf(builder.retryStatuses);
+        retryConnectionErrors = builder.retryConnectionErrors;
+        rateLimiter = builder.rateLimiter;
+    }
+
+    /**
+     * @return A builder that retries 503 (Server not available) 10 times, starting after 1 second
+     */
+    public static RequestExecutorBuilder builder()
+    {
+        return new RequestExecutorBuilder();
+    }
+
+    /**
+     * @param httpClient The client to send with
+     * @param request The request
+     * @param responseBodyHandler Handler for the expected response
+     * @return The response that was not retried, whatever its status; or completed with the IOException of the last try
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpClient httpClient, HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler)
+    {
+        return sendAsync(httpClient, request, responseBodyHandler, 1);
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpClient httpClient, HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler,
+        int attempt)
+    {
+        long wait = rateLimiter == null ? 0 : rateLimiter.reserve(request);
+        return delay(wait)
+            .thenCompose(ignored -> httpClient.sendAsync(request, responseBodyHandler))
+            .handle((response, e) -> {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (response != null && rateLimiter != null)
+                {
+                    rateLimiter.update(response);
+                }
+                if (attempt > maxRetries || !shouldRetry(response, cause))
+                {
+                    return response != null ? CompletableFuture.completedFuture(response) : CompletableFuture.<HttpResponse<T>>failedFuture(cause);
+                }
+                long backoff = getBackoffNanos(attempt, response);
+                if (response != null && response.statusCode() == 429 && rateLimiter != null)
+                {
+                    rateLimiter.pause(backoff); // Also hold back the other requests
+                }
+                LOGGER.warn("Request to {} failed with {}. Try again ({}/{}) in {} ms.", request.uri().getPath(),
+                    response != null ? response.statusCode() : cause.toString(), attempt, maxRetries, TimeUnit.NANOSECONDS.toMillis(backoff));
+                return delay(backoff).thenCompose(ignored -> sendAsync(httpClient, request, responseBodyHandler, attempt + 1));
+            })
+            .thenCompose(future -> future);
+    }
+
+    private boolean shouldRetry(@Nullable HttpResponse<?> response, @Nullable Throwable cause)
+    {
+        if (response != null)
+        {
+            return retryStatuses.contains(response.statusCode());
+        }
+        return retryConnectionErrors && cause instanceof IOException;
+    }
+
+    /**
+     * @return The time in the Retry-After header if any, else an exponential backoff with jitter
+     */
+    long getBackoffNanos(int attempt, @Nullable HttpResponse<?> response)
+    {
+        Optional<Long> retryAfter = response == null ? Optional.empty() : getRetryAfterNanos(response);
+        if (retryAfter.isPresent())
+        {
+            return retryAfter.get();
+        }
+        long backoff = initialBackoffNanos << Math.min(attempt - 1, 30);
+        if (backoff <= 0 || backoff > maxBackoffNanos)
+        {
+            backoff = maxBackoffNanos;
+        }
+        // Equal jitter: at least half of the backoff, so clients that failed together do not retry together
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    static Optional<Long> getRetryAfterNanos(HttpResponse<?> response)
+    {
+        Optional<String> millis = response.headers().firstValue(HEADER_RETRY_AFTER_MS);
+        Optional<String> retryAfter = response.headers().firstValue(HEADER_RETRY_AFTER);
+        try
+        {
+            if (millis.isPresent())
+            {
+                return Optional.of(TimeUnit.MICROSECONDS.toNanos(Math.round(Double.parseDouble(millis.get().trim()) * 1000)));
+            }
+            if (retryAfter.isPresent())
+            {
+                return Optional.of(parseRetryAfter(retryAfter.get().trim()));
+            }
+        }
+        catch (NumberFormatException | DateTimeParseException e)
+        {
+            LOGGER.debug("Ignoring invalid retry header", e);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @param retryAfter Seconds, or an HTTP date
+     */
+    private static long parseRetryAfter(String retryAfter)
+    {
+        if (!retryAfter.isEmpty() && Character.isDigit(retryAfter.charAt(0)))
+        {
+            return TimeUnit.MILLISECONDS.toNanos(Math.round(Double.parseDouble(retryAfter) * 1000));
+        }
+        ZonedDateTime at = ZonedDateTime.parse(retryAfter, DateTimeFormatter.RFC_1123_DATE_TIME);
+        return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toNanos());
+    }
+
+    private static CompletableFuture<Void> delay(long nanos)
+    {
+        if (nanos <= 0)
+        {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(nanos, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Builder for the executor
+     */
+    public static final class RequestExecutorBuilder
+    {
+        private int maxRetries = 10;
+        private Duration initialBackoff = Duration.ofSeconds(1);
+        private Duration maxBackoff = Duration.ofSeconds(60);
+        private final Set<Integer> retryStatuses = new HashSet<>(Set.of(503));
+        private boolean retryConnectionErrors = false;
+        private RateLimiter rateLimiter;
+
+        private RequestExecutorBuilder()
+        {
+        }
+
+        /**
+         * @param maxRetries Max number of retries. Default: 10
+         * @return The builder
+         */
+        public RequestExecutorBuilder withMaxRetries(int maxRetries)
+        {
+            this.maxRetries = Math.max(0, maxRetries);
+            return this;
+        }
+
+        /**
+         * The backoff doubles with each retry, up to the max backoff. Half of it is random.
+         *
+         * @param initialBackoff Backoff before the first retry. Default: 1 second
+         * @param maxBackoff Max backoff. Default: 60 seconds
+         * @return The builder
+         */
+        public RequestExecutorBuilder withBackoff(Duration initialBackoff, Duration maxBackoff)
+        {
+            if (initialBackoff.isNegative() || maxBackoff.compareTo(initialBackoff) < 0)
+            {
+                throw new IllegalArgumentException("Backoff should be positive, and max backoff at least the initial backoff");
+            }
+            this.initialBackoff = initialBackoff;
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        /**
+         * @param statuses Response statuses that are retried. Default: 503
+         * @return The builder
+         */
+        public RequestExecutorBuilder withRetryStatuses(Integer... statuses)
+        {
+            retryStatuses.clear();
+            retryStatuses.addAll(Arrays.asList(statuses));
+            return this;
+        }
+
+        /**
+         * Only for requests that can safely be sent twice
+         *
+         * @param retryConnectionErrors If requests that failed with an IOException are retried. Default: false
+         * @return The builder
+         */
+        public RequestExecutorBuilder withRetryConnectionErrors(boolean retryConnectionErrors)
+        {
+            this.retryConnectionErrors = retryConnectionErrors;
+            return this;
+        }
+
+        /**
+         * @param rateLimiter Limiter to send requests within, may be shared by executors. Default: none
+         * @return The builder
+         */
+        public RequestExecutorBuilder withRateLimiter(RateLimiter rateLimiter)
+        {
+            this.rateLimiter = rateLimiter;
+            return this;
+        }
+
+        /**
+         * @return The new executor
+         */
+        public RequestExecutor build()
+        {
+            return new RequestExecutor(this);
+        }
+    }
+}
@@ -17,6 +17,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.regex.Pattern;
 
 import org.knvvl.tools.generic.EncodeUtils;
@@ -105,11 +109,23 @@ public class SimpleHttpClient
     private static final String REPLACEMENT = "$1****";
     private static final Logger LOGGER = LoggerFactory.getLogger(SimpleHttpClient.class);
 
+    /**
+     * The JDK clients for configs with {@link Config#sharedClient()}, so their connections and TLS sessions are reused.
+     * Keyed by the options that the JDK client is built with only, so there are at most eight and none is evicted;
+     * credentials are headers of the requests, not part of the client.
+     */
+    private static final Map<SharedClientKey, HttpClient> SHARED_CLIENTS = new ConcurrentHashMap<>();
+
     private final HttpClient httpClient;
     private final String contextUrl;
     private final Config config;
+    private RequestExecutor requestExecutor;
     private final Map<String, String> defaultHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
 
+    private record SharedClientKey(boolean followRedirects, boolean ignoreSslWarnings, boolean http2)
+    {
+    }
+
     /**
      * Construct a client with the contextUrl which is the prefix for all urls used later on.
      * 
@@ -147,9 +163,20 @@ public class SimpleHttpClient
     {
         this.contextUrl = Objects.requireNonNull(contextUrl, "SimpleHttpClient needs a contextUrl");
 
+        httpClient = config.sharedClient() && !config.supportCookies()
+            ? SHARED_CLIENTS.computeIfAbsent(new SharedClientKey(config.followRedirects(), config.ignoreSslWarnings(), config.http2()),
+                key -> createHttpClient(config))
+            : createHttpClient(config);
+        requestExecutor = RequestExecutor.builder().withMaxRetries(config.getMaxNumberOfRetries()).build();
+
+        this.config = config;
+    }
+
+    private static HttpClient createHttpClient(Config config)
+    {
         HttpClient.Builder builder = HttpClient.newBuilder()
             .followRedirects(config.followRedirects() ? Redirect.NORMAL : Redirect.NEVER)
-            .version(Version.HTTP_1_1)
+            .version(config.http2() ? Version.HTTP_2 : Version.HTTP_1_1)
             .connectTimeout(Duration.ofSeconds(30));
         if (config.ignoreSslWarnings())
         {
@@ -159,10 +186,7 @@ public class SimpleHttpClient
         {
             builder = builder.cookieHandler(new CookieManager());
         }
-
-        httpClient = builder.build();
-
-        this.config = config;
+        return builder.build();
     }
 
     /**
@@ -195,6 +219,41 @@ public class SimpleHttpClient
         return sendRequest(getRequestBuilder(request).build(), BodyHandlers.ofString()).body();
     }
 
+    /**
+     * Same as {@link #postForString(String, String, String)}, without waiting for the response.
+     * 
+     * @param path The path which will be added to the contextUrl provided in the constructor
+     * @param payload The body content
+     * @param contentType The type of the body content
+     * @return The response as a string, or completed with an HttpRequestException or HttpClientException
+     */
+    public CompletableFuture<String> postForStringAsync(String path, String payload, String contentType)
+    {
+        return sendForStringAsync(Request.buildPost().withPath(path).withBody(payload).withContentType(contentType).build());
+    }
+
+    /**
+     * Same as {@link #sendForString(Request)}, without waiting for the response. Retries are scheduled,
+     * they do not block a thread.
+     * 
+     * @param request A request
+     * @return The body of response as a string, or completed with an HttpRequestException when the status is
+     * not in the 200-299 range, or an HttpClientException for other issues
+     */
+    public CompletableFuture<String> sendForStringAsync(Request request)
+    {
+        HttpRequest httpRequest;
+        try
+        {
+            httpRequest = getRequestBuilder(request).build();
+        }
+        catch (RuntimeException e)
+        {
+            return CompletableFuture.failedFuture(e);
+        }
+        return sendRequestAsync(httpRequest, BodyHandlers.ofString()).thenApply(HttpResponse::body);
+    }
+
     /**
      * Send a request that is build using the Request builder. The stream should be closed by the invoker from this method.
      *
@@ -347,55 +406,68 @@ public class SimpleHttpClient
     }
 
     private <T> HttpResponse<T> sendRequest(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler)
-    {
-        return sendRequest(request, responseBodyHandler, 1);
-    }
-
-    private <T> HttpResponse<T> sendRequest(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, int retryCount)
     {
         try
         {
-            HttpResponse<T> resp = httpClient.send(request, responseBodyHandler);
-            if (resp.statusCode() >= 200 && resp.statusCode() < 300)  // Success
+            return sendRequestAsync(request, responseBodyHandler).get();
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof HttpClientException clientException)
             {
-                if (LOGGER.isTraceEnabled())
+                throw clientException;
+            }
+            throw new HttpClientException(createFailedMessage(request, e.getCause()), e.getCause());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new HttpClientException(createFailedMessage(request, e), e);
+        }
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> sendRequestAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler)
+    {
+        return requestExecutor.sendAsync(httpClient, request, responseBodyHandler)
+            .handle((resp, e) -> {
+                if (e != null)
                 {
-                    String sanitizedResponse = sanitizeResponse(resp);
-                    LOGGER.trace("Request: {}", sanitizedResponse);
-                    LOGGER.trace("Response: {}", resp.body());
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    throw new HttpClientException(createFailedMessage(request, cause), cause);
                 }
                 return resp;
-            }
-            else if (resp.statusCode() == 503 && retryCount <= getConfig().getMaxNumberOfRetries())   // Server not available (Overloaded of starting)
-            {
-                // Sometimes servers are not available for a short time because they are overloaded. Then retry max the configured times.
-                LOGGER.warn("Server Not Available. Try again ({}/{}).", retryCount, getConfig().getMaxNumberOfRetries());
-                Thread.sleep(1000);
-                retryCount++;
-                return sendRequest(request, responseBodyHandler, retryCount);
-            }
-            else
+            })
+            .thenCompose(resp -> isSuccess(resp)
+                ? CompletableFuture.completedFuture(resp)
+                : CompletableFuture.failedFuture(createRequestException(request, resp)));
+    }
+
+    private boolean isSuccess(HttpResponse<?> resp)
+    {
+        if (resp.statusCode() >= 200 && resp.statusCode() < 300)  // Success
+        {
+            if (LOGGER.isTraceEnabled())
             {
-                String sanitizedUrl = sanitizeUrl(request.uri().toString());
-                HttpRequestException ex = HttpRequestException.create(sanitizedUrl, resp);
-                LOGGER.warn("Request failed: {}", sanitizedUrl);
-                if (LOGGER.isDebugEnabled())
-                {
-                    LOGGER.debug("    Headers: {}", resp.headers().map());
-                    LOGGER.debug("    Response: {}", ex.getMessage());
-                }
-                throw ex;
+                String sanitizedResponse = sanitizeResponse(resp);
+                LOGGER.trace("Request: {}", sanitizedResponse);
+                LOGGER.trace("Response: {}", resp.body());
             }
+            return true;
         }
-        catch (IOException e)
-        {
-            throw new HttpClientException(createFailedMessage(request, e), e);
-        }
-        catch (InterruptedException e)
+        return false;
+    }
+
+    private HttpRequestException createRequestException(HttpRequest request, HttpResponse<?> resp)
+    {
+        String sanitizedUrl = sanitizeUrl(request.uri().toString());
+        HttpRequestException ex = HttpRequestException.create(sanitizedUrl, resp);
+        LOGGER.warn("Request failed: {}", sanitizedUrl);
+        if (LOGGER.isDebugEnabled())
         {
-            Thread.currentThread().interrupt();
-            throw new HttpClientException(createFailedMessage(request, e), e);
+            LOGGER.debug("    Headers: {}", resp.headers().map());
+            LOGGER.debug("    Response: {}", ex.getMessage());
         }
+        return ex;
     }
 
     private String createFailedMessage(HttpRequest request, Throwable e)
@@ -431,6 +503,16 @@ public class SimpleHttpClient
         this.defaultHeaders.putAll(defaultHeaders);
     }
 
+    /**
+     * Replaces how requests are retried and rate limited. By default only 503 (Server not available) is retried.
+     * 
+     * @param requestExecutor The executor for all requests, except those of {@link #send(Request)}
+     */
+    protected void setRequestExecutor(RequestExecutor requestExecutor)
+    {
+        this.requestExecutor = Objects.requireNonNull(requestExecutor);
+    }
+
     /**
      * Clears the default headers. For example after logout.
      */
@@ -565,7 +647,8 @@ public class SimpleHttpClient
         boolean ignoreSslWarnings();
 
         /**
-         * When the client returns a 503 (Server not available) it will retry the request for this number of times.
+         * When the client returns a 503 (Server not available) it will retry the request for this number of times,
+         * with exponential backoff. See {@link SimpleHttpClient#setRequestExecutor(RequestExecutor)} for other statuses.
          * @return Max number of retries 
          */
         int getMaxNumberOfRetries();
@@ -574,6 +657,27 @@ public class SimpleHttpClient
          * @return The headers that will always be sent during every request
          */
         Map<String, String> getFixedHeaders();
+
+        /**
+         * Clients with the same settings then use one JDK HttpClient, and so share its connection pool and TLS sessions.
+         * Not together with cookies, because those would be shared as well.
+         * 
+         * @return If the JDK HttpClient should be shared
+         */
+        default boolean sharedClient()
+        {
+            return false;
+        }
+
+        /**
+         * Servers that do not support HTTP/2 are still talked to with HTTP/1.1.
+         * 
+         * @return If HTTP/2 should be tried, so parallel requests share one connection
+         */
+        default boolean http2()
+        {
+            return false;
+        }
         
         /**
          * @return Create a builder with default settings
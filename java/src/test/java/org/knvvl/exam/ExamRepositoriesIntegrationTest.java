@@ -3,13 +3,16 @@ package org.knvvl.exam;
 import static java.util.Collections.emptyList;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.knvvl.exam.services.ExamRepositories.SORT_BY_ID;
 import static org.knvvl.exam.values.Languages.LANGUAGE_NL;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -22,10 +25,12 @@ import org.knvvl.exam.entities.Topic;
 import org.knvvl.exam.repos.ChangeRepository;
 import org.knvvl.exam.repos.RequirementRepository;
 import org.knvvl.exam.repos.TopicRepository;
+import org.knvvl.exam.repos.TranslationMemoryRepository;
 import org.knvvl.exam.values.CreateEntityResult;
 import org.knvvl.exam.services.ExamRepositories;
 import org.knvvl.exam.services.ExamService;
 import org.knvvl.exam.services.QuestionService;
+import org.knvvl.exam.services.TranslationMemory;
 import org.knvvl.exam.services.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -55,6 +60,10 @@ public class ExamRepositoriesIntegrationTest
     private ChangeRepository changeRepository;
     @Autowired
     private UserService userService;
+    @Autowired
+    private TranslationMemory translationMemory;
+    @Autowired
+    private TranslationMemoryRepository translationMemoryRepository;
 
     @Before
     public void setUp()
@@ -91,6 +100,54 @@ public class ExamRepositoriesIntegrationTest
         assertEquals(0, examRepositories.getExamQuestionRepository().findByExamOrderByQuestionIndex(2).size());
     }
 
+    @Test
+    public void queryQuestionsWithFilters()
+    {
+        givenTopic();
+        givenRequirement();
+        Question question1 = givenQuestion("A");
+        Question question2 = givenQuestion("B");
+        question2.setDiscuss(true);
+
+        Exam exam = new Exam("Jan 2023", 2, LANGUAGE_NL);
+        exam.setId(1);
+        examService.addExam(exam, List.of(question1));
+
+        assertEquals(2, questionService.queryQuestions(SORT_BY_ID, LANGUAGE_NL.id(), 1, 1, 0, "", false).count());
+        assertEquals(0, questionService.queryQuestions(SORT_BY_ID, "en", 1, 1, 0, "", false).count());
+        assertEquals(0, questionService.queryQuestions(SORT_BY_ID, "", 2, 0, 0, "", false).count());
+        assertEquals(List.of(question1.getId()), questionService.queryQuestions(SORT_BY_ID, "", 0, 0, 1, "", false).map(Question::getId).toList());
+        assertEquals(List.of(question2.getId()), questionService.queryQuestions(SORT_BY_ID, "", 1, 0, 0, "", true).map(Question::getId).toList());
+    }
+
+    @Test
+    public void queryQuestionsByPage()
+    {
+        givenTopic();
+        givenRequirement();
+        Question question1 = givenQuestion("A");
+        Question question2 = givenQuestion("B");
+        Question question3 = givenQuestion("C");
+
+        List<Question> page1 = questionService.queryQuestionsPage("", 0, 0, 0, "", false, 0, 2);
+        assertEquals(List.of(question3, question2), page1);
+        List<Question> page2 = questionService.queryQuestionsPage("", 0, 0, 0, "", false, page1.get(1).getId(), 2);
+        assertEquals(List.of(question1), page2);
+        assertEquals(3, questionService.queryQuestionsPage("", 0, 0, 0, "", false, 0, 0).size());
+    }
+
+    @Test
+    public void rememberTranslations()
+    {
+        String key = TranslationMemory.getKey("Geen van bovenstaande.", "en", "gpt-4o-mini", "Translate to {0}: {1}");
+        assertNotEquals("Other instructions", key, TranslationMemory.getKey("Geen van bovenstaande.", "en", "gpt-4o-mini", "{1}"));
+        assertEquals(0, translationMemory.getAll(List.of(key)).size());
+
+        translationMemory.putAll(Map.of(key, "None of the above."));
+        assertEquals(Map.of(key, "None of the above."), translationMemory.getAll(List.of(key, "unknown")));
+        assertEquals("None of the above.", translationMemoryRepository.getReferenceById(key).getTranslated());
+    }
+
     @Test
     public void getChangesForQuestion()
     {
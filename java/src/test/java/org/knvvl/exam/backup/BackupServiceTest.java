@@ -39,6 +39,7 @@ import org.knvvl.exam.repos.TopicRepository;
 import org.knvvl.exam.repos.UserRepository;
 import org.knvvl.exam.services.BackupService;
 import org.knvvl.exam.services.ExamRepositories;
+import org.knvvl.exam.services.QuestionIndex;
 import org.mockito.ArgumentCaptor;
 import org.springframework.data.jpa.repository.JpaRepository;
 
@@ -56,7 +57,7 @@ class BackupServiceTest
     private final TextRepository textRepository = mock(TextRepository.class);
 
     private final ExamRepositories examRepositories = new ExamRepositories();
-    private final BackupService backupService = new BackupService(examRepositories);
+    private final BackupService backupService = new BackupService(examRepositories, new QuestionIndex());
 
     @BeforeEach
     void setUp()
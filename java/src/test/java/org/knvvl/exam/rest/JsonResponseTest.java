@@ -0,0 +1,47 @@
+package org.knvvl.exam.rest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.knvvl.exam.entities.Requirement;
+import org.knvvl.exam.entities.Topic;
+import org.knvvl.exam.meta.EntityField;
+import org.knvvl.exam.meta.EntityFields;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+class JsonResponseTest
+{
+    @Test
+    void compactWithoutNulls()
+    {
+        String json = JsonResponse.toJson("text", (writer, value) -> {
+            writer.name("value").value(value);
+            writer.name("missing").value((String)null);
+            writer.name("number").value(1);
+        });
+        assertEquals("{\"value\":\"text\",\"number\":1}", json);
+    }
+
+    @Test
+    void streamedFieldsAsJsonObject()
+    {
+        Topic topic = new Topic("Meteo");
+        topic.setId(2);
+        Requirement requirement = new Requirement();
+        requirement.setLabel("1.1");
+        requirement.setTopic(topic);
+        requirement.setDomainTitle("Weer");
+        EntityFields<Requirement> fields = Requirement.getFields(null);
+
+        JsonObject tree = new JsonObject();
+        for (EntityField<Requirement> field : fields.getFields())
+            field.writeJson(requirement, tree);
+        String streamed = JsonResponse.toJson(requirement, (writer, r) -> {
+            for (EntityField<Requirement> field : fields.getFields())
+                field.writeJson(r, writer);
+        });
+        assertEquals(new Gson().toJson(tree), streamed);
+    }
+}
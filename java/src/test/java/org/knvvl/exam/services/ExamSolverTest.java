@@ -0,0 +1,115 @@
+package org.knvvl.exam.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.knvvl.exam.services.QuestionIndex.IndexedQuestion;
+
+class ExamSolverTest
+{
+    @Test
+    void solveWithAllFilters()
+    {
+        // 20 requirements with 3 questions each, every third question shares a picture with the next one
+        List<IndexedQuestion> questions = new ArrayList<>();
+        for (int i = 0; i < 60; i++)
+            questions.add(question(i, i % 20, i % 3 == 0 ? i : null, ""));
+
+        ExamSolver.Result result = solve(questions, 20);
+
+        assertNotNull(result);
+        assertEquals(3, result.howManyFilters());
+        assertTrue(result.relaxations().isEmpty());
+        assertEquals(20, new HashSet<>(result.questions().stream().map(IndexedQuestion::requirement).toList()).size());
+    }
+
+    @Test
+    void solveWhereRandomPickingFails()
+    {
+        // Requirement 0 has one question only, and it shares its exam group with all questions of requirement 1.
+        // Random picking often takes a question of requirement 1 first and then runs out; backtracking must not.
+        List<IndexedQuestion> questions = new ArrayList<>();
+        questions.add(question(0, 0, null, "group"));
+        for (int i = 1; i < 10; i++)
+            questions.add(question(i, 1, null, "group"));
+        questions.add(question(10, 1, null, ""));
+
+        for (int seed = 0; seed < 20; seed++)
+        {
+            ExamSolver.Result result = new ExamSolver(new CandidateSet(questions), new CandidateSet(questions).all(), new Random(seed)).solve(2);
+            assertNotNull(result);
+            assertEquals(3, result.howManyFilters());
+            assertEquals(List.of(0, 10), result.questions().stream().map(IndexedQuestion::id).sorted().toList());
+        }
+    }
+
+    @Test
+    void relaxRequirementFilter()
+    {
+        List<IndexedQuestion> questions = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            questions.add(question(i, i % 5, null, ""));
+
+        ExamSolver.Result result = solve(questions, 8);
+
+        assertNotNull(result);
+        assertEquals(2, result.howManyFilters());
+        assertEquals(1, result.relaxations().size());
+        assertTrue(result.relaxations().get(0).contains("one question per requirement"), result.relaxations().get(0));
+        assertTrue(result.relaxations().get(0).contains("only 5 questions"), result.relaxations().get(0));
+    }
+
+    @Test
+    void notEnoughQuestions()
+    {
+        List<IndexedQuestion> questions = List.of(question(1, 1, null, ""), question(2, 2, null, ""));
+        assertNull(solve(questions, 3));
+    }
+
+    /**
+     * Large random banks are solved within the search steps, so without relaxing any filter
+     */
+    @Test
+    void solveLargeBank()
+    {
+        Random random = new Random(42);
+        for (int size : new int[] {1_000, 100_000})
+        {
+            int requirements = Math.max(20, size / 10);
+            List<IndexedQuestion> questions = new ArrayList<>();
+            for (int i = 0; i < size; i++)
+            {
+                Integer picture = random.nextInt(4) == 0 ? random.nextInt(size / 4 + 1) : null;
+                String examGroup = random.nextInt(5) == 0 ? "group" + random.nextInt(size / 5 + 1) : "";
+                questions.add(question(i, random.nextInt(requirements), picture, examGroup));
+            }
+            CandidateSet candidates = new CandidateSet(questions);
+            for (int run = 0; run < 10; run++)
+            {
+                ExamSolver.Result result = new ExamSolver(candidates, candidates.all(), random).solve(20);
+                assertNotNull(result);
+                assertEquals(3, result.howManyFilters(), "Questions: " + size);
+                assertTrue(result.relaxations().isEmpty(), result.relaxations().toString());
+            }
+        }
+    }
+
+    private static ExamSolver.Result solve(List<IndexedQuestion> questions, int n)
+    {
+        CandidateSet candidates = new CandidateSet(questions);
+        return new ExamSolver(candidates, candidates.all(), new Random(1)).solve(n);
+    }
+
+    private static IndexedQuestion question(int id, int requirement, Integer picture, String examGroup)
+    {
+        return new IndexedQuestion(id, 1, requirement, picture, examGroup, "nl", true, true, false, "A");
+    }
+}
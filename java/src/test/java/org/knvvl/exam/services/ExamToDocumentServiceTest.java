@@ -92,6 +92,8 @@ class ExamToDocumentServiceTest
         exam.setId(examId);
         service.examService = examService;
         service.textService = textService;
+        service.pictureRenditions = new PictureRenditions();
+        service.fontManager = new FontManager(textService, mock(ChangeDetector.class));
         when(examService.getExamQuestionsForExam(exam.getId())).thenReturn(List.of(eq1, eq2));
         when(textService.get(any(Config.class))).thenAnswer(i -> ((Config)i.getArgument(0)).defaultValue());
     }
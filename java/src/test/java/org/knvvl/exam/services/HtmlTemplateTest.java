@@ -0,0 +1,36 @@
+package org.knvvl.exam.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class HtmlTemplateTest
+{
+    @Test
+    void render()
+    {
+        HtmlTemplate template = HtmlTemplate.compile("<p>{a} and {b}, {a} again</p>", "a", "b");
+        assertEquals("<p>1 and 2, 1 again</p>", template.render("1", "2"));
+    }
+
+    @Test
+    void keepUnknownBraces()
+    {
+        HtmlTemplate template = HtmlTemplate.compile("body { margin: 0; } `${name}` {x}", "x");
+        assertEquals("body { margin: 0; } `${name}` 42", template.render("42"));
+    }
+
+    @Test
+    void valuesAreNotScannedForPlaceholders()
+    {
+        HtmlTemplate template = HtmlTemplate.compile("{question}{picture}", "question", "picture");
+        assertEquals("What is {picture}?<img/>", template.render("What is {picture}?", "<img/>"));
+    }
+
+    @Test
+    void noPlaceholders()
+    {
+        assertEquals("", HtmlTemplate.compile("").render());
+        assertEquals("{", HtmlTemplate.compile("{", "x").render("1"));
+    }
+}
@@ -0,0 +1,32 @@
+package org.knvvl.exam.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.knvvl.exam.services.QuestionIndex.IndexedQuestion;
+
+class QuestionCounterTest
+{
+    @Test
+    void countsActiveQuestions()
+    {
+        QuestionCounter.Counts counts = new QuestionCounter.Counts(List.of(
+            question(1, 1, 10, "nl", true, true, false),
+            question(2, 1, 11, "nl", true, false, false),
+            question(3, 2, 20, "en", false, true, false),
+            question(4, 1, 10, "nl", true, true, true)));
+
+        assertEquals(2, counts.getActiveForTopic(1));
+        assertEquals(1, counts.getActiveForTopic(2));
+        assertEquals(0, counts.getActiveForTopic(3));
+        assertEquals(1, counts.getActiveForRequirement(10));
+        assertEquals(1, counts.getActiveForRequirement(20));
+    }
+
+    private static IndexedQuestion question(int id, int topic, int requirement, String language, boolean allowB2, boolean allowB3, boolean ignore)
+    {
+        return new IndexedQuestion(id, topic, requirement, null, "", language, allowB2, allowB3, ignore, "A");
+    }
+}
@@ -0,0 +1,99 @@
+package org.knvvl.exam.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.knvvl.exam.entities.Question;
+
+class QuestionSearchIndexTest
+{
+    private final QuestionSearchIndex index = new QuestionSearchIndex(new QuestionIndex());
+
+    @BeforeEach
+    void setUp()
+    {
+        index.build(List.of(
+            question(1, "Wat is de functie van een reddingsvest?", "Drijfvermogen", "nl"),
+            question(2, "Welke categorieën parachutes zijn er?", "Drie", "nl"),
+            question(3, "What is the function of a reserve parachute?", "Backup", "en")));
+    }
+
+    @Test
+    void prefixMatch()
+    {
+        assertEquals(ids(2, 3), index.search("para"));
+        assertEquals(ids(1), index.search("redding"));
+        assertEquals(ids(3), index.search("reserve PARACHUTE"));
+    }
+
+    @Test
+    void allWordsMustMatch()
+    {
+        assertEquals(ids(1), index.search("functie drijf"));
+        assertEquals(ids(), index.search("functie backup"));
+    }
+
+    @Test
+    void accentsAreIgnored()
+    {
+        assertEquals(ids(2), index.search("categorieen"));
+        assertEquals(ids(2), index.search("categorieën"));
+    }
+
+    @Test
+    void idsAndTags()
+    {
+        assertEquals(ids(3), index.search("3"));
+        assertEquals(ids(3), index.search("lang:en"));
+    }
+
+    @Test
+    void noWords()
+    {
+        assertNull(index.search(" ?! "));
+    }
+
+    @Test
+    void update()
+    {
+        Question question = question(1, "Hoe werkt een altimeter?", "Luchtdruk", "nl");
+        index.update(question);
+        assertEquals(ids(), index.search("reddingsvest"));
+        assertEquals(ids(1), index.search("altim"));
+        index.update(question(4, "Nieuwe vraag over reddingsvesten", "Ja", "nl"));
+        assertEquals(ids(4), index.search("reddingsvest"));
+    }
+
+    @Test
+    void updateWhileBuilding()
+    {
+        index.allQuestionsChanged();
+        index.update(question(1, "Hoe werkt een altimeter?", "Luchtdruk", "nl"));
+        index.build(List.of(question(1, "Wat is de functie van een reddingsvest?", "Drijfvermogen", "nl"))); // Loaded before the update
+        assertEquals(ids(1), index.search("altim"));
+        assertEquals(ids(), index.search("reddingsvest"));
+    }
+
+    private static Question question(int id, String text, String answerA, String language)
+    {
+        Question question = new Question();
+        question.setId(id);
+        question.setQuestion(text);
+        question.setAnswerA(answerA);
+        question.setLanguage(language);
+        return question;
+    }
+
+    private static BitSet ids(int... ids)
+    {
+        BitSet bitSet = new BitSet();
+        for (int id : ids)
+            bitSet.set(id);
+        return bitSet;
+    }
+}
@@ -0,0 +1,86 @@
+package org.knvvl.exam.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.knvvl.exam.entities.Question;
+
+class TranslationGraphTest
+{
+    private final TranslationGraph graph = new TranslationGraph(new QuestionIndex());
+
+    @BeforeEach
+    void setUp()
+    {
+        graph.load(List.of(view(2, 1, "en")));
+    }
+
+    @Test
+    void loaded()
+    {
+        assertEquals(Integer.valueOf(2), graph.getTranslation(1, "en"));
+        assertNull(graph.getTranslation(1, "nl"));
+        assertNull(graph.getTranslation(2, "en"));
+    }
+
+    @Test
+    void putAndRemove()
+    {
+        graph.put(question(3, 4, "en"));
+        assertEquals(Integer.valueOf(3), graph.getTranslation(4, "en"));
+        assertEquals(Integer.valueOf(2), graph.getTranslation(1, "en"));
+
+        graph.remove(3, 4, "en");
+        graph.put(question(3, 4, "nl"));
+        assertNull(graph.getTranslation(4, "en"));
+        assertEquals(Integer.valueOf(3), graph.getTranslation(4, "nl"));
+
+        graph.remove(5, 1, "en"); // Not the translation to en
+        assertEquals(Integer.valueOf(2), graph.getTranslation(1, "en"));
+    }
+
+    @Test
+    void reload()
+    {
+        graph.load(List.of(view(5, 4, "en")));
+        assertNull(graph.getTranslation(1, "en"));
+        assertEquals(Integer.valueOf(5), graph.getTranslation(4, "en"));
+    }
+
+    private static Question question(int id, int translates, String language)
+    {
+        Question question = new Question();
+        question.setId(id);
+        question.setTranslates(translates);
+        question.setLanguage(language);
+        return question;
+    }
+
+    private static Question.TranslationView view(int id, int translates, String language)
+    {
+        return new Question.TranslationView()
+        {
+            @Override
+            public int getId()
+            {
+                return id;
+            }
+
+            @Override
+            public Integer getTranslates()
+            {
+                return translates;
+            }
+
+            @Override
+            public String getLanguage()
+            {
+                return language;
+            }
+        };
+    }
+}
@@ -0,0 +1,121 @@
+package org.knvvl.tools.chatgpt;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.knvvl.tools.generic.http.TestHttpServer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+
+class BulkTranslatorTest
+{
+    private static final Gson GSON = new Gson();
+
+    private TestHttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile boolean skipLast = false;
+
+    @BeforeEach
+    void startServer() throws IOException
+    {
+        server = TestHttpServer.start().handle("/v1/chat/completions", this::answer);
+    }
+
+    @AfterEach
+    void stopServer()
+    {
+        server.close();
+    }
+
+    /**
+     * Translates by upper casing the numbered texts. With skipLast, the last text of a batch of more is left out.
+     */
+    private void answer(HttpExchange exchange) throws IOException
+    {
+        requests.incrementAndGet();
+        JsonObject request = GSON.fromJson(new String(exchange.getRequestBody().readAllBytes(), UTF_8), JsonObject.class);
+        JsonArray messages = request.getAsJsonArray("messages");
+        String content = messages.get(messages.size() - 1).getAsJsonObject().get("content").getAsString();
+        JsonObject texts = GSON.fromJson(content.substring(content.indexOf('{')), JsonObject.class);
+        JsonObject translated = new JsonObject();
+        texts.entrySet().forEach(e -> translated.addProperty(e.getKey(), e.getValue().getAsString().toUpperCase()));
+        if (skipLast && texts.size() > 1)
+            translated.remove(String.valueOf(texts.size()));
+
+        JsonObject message = new JsonObject();
+        message.addProperty("role", "assistant");
+        message.addProperty("content", "```json\n" + GSON.toJson(translated) + "\n```");
+        JsonObject choice = new JsonObject();
+        choice.add("message", message);
+        JsonArray choices = new JsonArray();
+        choices.add(choice);
+        JsonObject response = new JsonObject();
+        response.add("choices", choices);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        TestHttpServer.respond(exchange, 200, GSON.toJson(response));
+    }
+
+    private BulkTranslator createTranslator()
+    {
+        String rootUrl = server.getUrl("/v1/");
+        SimpleChatGptClient client = new SimpleChatGptClient(rootUrl, ChatGptConfig.create().withApiKey("key").build());
+        return BulkTranslator.create(client, "To {0}: {1}").withMaxTextsPerRequest(2).withMaxConcurrent(2).build();
+    }
+
+    @Test
+    void translatesInBatches()
+    {
+        List<String> progress = new ArrayList<>();
+        List<String> translated = createTranslator().translate(List.of("een", "", "twee", "een", "drie <b>"), "English",
+            (done, total) -> {
+                synchronized (progress)
+                {
+                    progress.add(done + "/" + total);
+                }
+            });
+
+        assertEquals(List.of("EEN", "", "TWEE", "EEN", "DRIE <B>"), translated);
+        assertEquals(2, requests.get()); // Three distinct texts, two per request
+        assertEquals(2, progress.size());
+        assertEquals("3/3", progress.stream().max(String::compareTo).orElseThrow());
+    }
+
+    @Test
+    void missingTextIsSentAgain()
+    {
+        skipLast = true;
+        List<String> translated = createTranslator().translate(List.of("een", "twee", "drie"), "English", (done, total) -> {});
+
+        assertEquals(List.of("EEN", "TWEE", "DRIE"), translated);
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    void createBatches()
+    {
+        String longText = "x".repeat(5000);
+        List<List<String>> batches = createTranslator().createBatches(List.of(longText, longText, "a", "b", "c"));
+        assertEquals(List.of(List.of(longText), List.of(longText, "a"), List.of("b", "c")), batches);
+    }
+
+    @Test
+    void parseAnswer()
+    {
+        assertEquals(Map.of("1", "one", "2", "two"), BulkTranslator.parseAnswer("Here:\n```json\n{\"1\": \"one\", \"2\": \"two\"}\n```"));
+        assertEquals(Map.of(), BulkTranslator.parseAnswer("Sorry"));
+        assertEquals(Map.of(), BulkTranslator.parseAnswer("{not json}"));
+    }
+}
@@ -0,0 +1,48 @@
+package org.knvvl.tools.generic.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class RateLimiterTest
+{
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void requestsPerMinute()
+    {
+        RateLimiter limiter = RateLimiter.perMinute(60, 0, request -> 0);
+        long now = System.nanoTime();
+        for (int i = 0; i < 10; i++) // Ten seconds worth in a burst
+            assertEquals(0, limiter.reserve(0, now));
+        assertEquals(SECOND, limiter.reserve(0, now), 1000);
+        assertEquals(2 * SECOND, limiter.reserve(0, now), 1000);
+        assertEquals(0, limiter.reserve(0, now + 10 * SECOND)); // Refilled
+    }
+
+    @Test
+    void tokensPerMinute()
+    {
+        RateLimiter limiter = RateLimiter.perMinute(0, 6000, request -> 0);
+        long now = System.nanoTime();
+        assertEquals(0, limiter.reserve(800, now));
+        assertEquals(0, limiter.reserve(200, now));
+        assertEquals(5 * SECOND, limiter.reserve(500, now), 1000); // 100 tokens per second
+    }
+
+    @Test
+    void followsRemainingFromServer()
+    {
+        long now = System.nanoTime();
+        RateLimiter requests = RateLimiter.perMinute(60, 6000, request -> 0);
+        requests.update(Optional.of(0L), Optional.empty(), now);
+        assertEquals(SECOND, requests.reserve(0, now), 1000);
+
+        RateLimiter tokens = RateLimiter.perMinute(60, 6000, request -> 0);
+        tokens.update(Optional.empty(), Optional.of(100L), now);
+        assertEquals(SECOND, tokens.reserve(200, now), 1000);
+    }
+}
@@ -0,0 +1,161 @@
+package org.knvvl.tools.generic.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.knvvl.tools.generic.http.TestHttpServer.respond;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RequestExecutorTest
+{
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final AtomicInteger requests = new AtomicInteger();
+    private TestHttpServer server;
+
+    @BeforeEach
+    void startServer() throws IOException
+    {
+        server = TestHttpServer.start();
+        server.handle("/limited", exchange -> {
+            if (requests.incrementAndGet() == 1)
+            {
+                exchange.getResponseHeaders().set(RequestExecutor.HEADER_RETRY_AFTER, "1");
+                respond(exchange, 429, "Rate limit reached");
+            }
+            else
+                respond(exchange, 200, "Ok");
+        });
+        server.handle("/limited-ms", exchange -> {
+            if (requests.incrementAndGet() == 1)
+            {
+                exchange.getResponseHeaders().set(RequestExecutor.HEADER_RETRY_AFTER_MS, "20");
+                exchange.getResponseHeaders().set(RequestExecutor.HEADER_RETRY_AFTER, "60");
+                respond(exchange, 429, "Rate limit reached");
+            }
+            else
+                respond(exchange, 200, "Ok");
+        });
+        server.handle("/failing", exchange -> {
+            requests.incrementAndGet();
+            respond(exchange, 500, "Error");
+        });
+        server.handle("/missing", exchange -> {
+            requests.incrementAndGet();
+            respond(exchange, 404, "Not found");
+        });
+    }
+
+    @AfterEach
+    void stopServer()
+    {
+        server.close();
+    }
+
+    private HttpResponse<String> send(RequestExecutor executor, String path)
+    {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server.getUrl(path))).build();
+        return executor.sendAsync(httpClient, request, BodyHandlers.ofString()).join();
+    }
+
+    private static RequestExecutor createExecutor()
+    {
+        return RequestExecutor.builder()
+            .withMaxRetries(2)
+            .withRetryStatuses(429, 500)
+            .withBackoff(Duration.ofMillis(10), Duration.ofMillis(20))
+            .build();
+    }
+
+    @Test
+    void retriedAfterRetryAfter()
+    {
+        long start = System.nanoTime();
+        HttpResponse<String> response = send(createExecutor(), "/limited");
+        assertEquals(200, response.statusCode());
+        assertEquals(2, requests.get());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(900), "Waited for Retry-After");
+    }
+
+    @Test
+    void retriedAfterRetryAfterMs()
+    {
+        long start = System.nanoTime();
+        HttpResponse<String> response = send(createExecutor(), "/limited-ms");
+        assertEquals(200, response.statusCode());
+        assertEquals(2, requests.get());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30), "Took retry-after-ms over Retry-After");
+    }
+
+    @Test
+    void givesUpAfterMaxRetries()
+    {
+        assertEquals(500, send(createExecutor(), "/failing").statusCode());
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    void otherStatusNotRetried()
+    {
+        assertEquals(404, send(createExecutor(), "/missing").statusCode());
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void rateLimited()
+    {
+        RequestExecutor executor = RequestExecutor.builder()
+            .withRateLimiter(RateLimiter.perMinute(60, 0, RateLimiter::estimateTokens)) // Ten in a burst, then one per second
+            .build();
+        long start = System.nanoTime();
+        for (int i = 0; i < 11; i++)
+            assertEquals(404, send(executor, "/missing").statusCode());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(900), "Eleventh request waited");
+    }
+
+    @Test
+    void exponentialBackoffWithJitter()
+    {
+        RequestExecutor executor = RequestExecutor.builder().withBackoff(Duration.ofMillis(100), Duration.ofSeconds(1)).build();
+        for (int i = 0; i < 20; i++)
+        {
+            assertBetween(50, 100, executor.getBackoffNanos(1, null));
+            assertBetween(200, 400, executor.getBackoffNanos(3, null));
+            assertBetween(500, 1000, executor.getBackoffNanos(10, null));
+            assertBetween(500, 1000, executor.getBackoffNanos(100, null));
+        }
+    }
+
+    @Test
+    void retryAfterAsDate()
+    {
+        server.handle("/date", exchange -> {
+            ZonedDateTime at = ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(5);
+            exchange.getResponseHeaders().set(RequestExecutor.HEADER_RETRY_AFTER, DateTimeFormatter.RFC_1123_DATE_TIME.format(at));
+            respond(exchange, 503, "Starting");
+        });
+        HttpResponse<String> response = send(RequestExecutor.builder().withMaxRetries(0).build(), "/date");
+        long nanos = RequestExecutor.getRetryAfterNanos(response).orElseThrow();
+        assertTrue(nanos > TimeUnit.SECONDS.toNanos(3) && nanos <= TimeUnit.SECONDS.toNanos(5), "About five seconds: " + nanos);
+    }
+
+    private static void assertBetween(long minMillis, long maxMillis, long nanos)
+    {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        assertTrue(millis >= minMillis && millis <= maxMillis, millis + " ms not between " + minMillis + " and " + maxMillis);
+    }
+}
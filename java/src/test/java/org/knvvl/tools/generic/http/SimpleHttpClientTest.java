@@ -0,0 +1,85 @@
+package org.knvvl.tools.generic.http;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.knvvl.tools.generic.http.TestHttpServer.respond;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SimpleHttpClientTest
+{
+    private TestHttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeEach
+    void startServer() throws IOException
+    {
+        server = TestHttpServer.start()
+            .handle("/echo", exchange -> respond(exchange, 200, new String(exchange.getRequestBody().readAllBytes(), UTF_8)))
+            .handle("/missing", exchange -> respond(exchange, 404, "Not found"))
+            .handle("/starting", exchange -> {
+                if (requests.incrementAndGet() == 1)
+                    respond(exchange, 503, "Starting");
+                else
+                    respond(exchange, 200, "Started");
+            });
+    }
+
+    @AfterEach
+    void stopServer()
+    {
+        server.close();
+    }
+
+    private SimpleHttpClient createClient()
+    {
+        return new SimpleHttpClient(server.getUrl(""),
+            SimpleHttpClient.Config.builder().withSharedClient(true).withHttp2(true).build());
+    }
+
+    @Test
+    void postForStringAsync()
+    {
+        SimpleHttpClient client = createClient();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            futures.add(client.postForStringAsync("echo", "text " + i, Request.CONTENT_TYPE_JSON));
+        for (int i = 0; i < 10; i++)
+            assertEquals("text " + i, futures.get(i).join());
+    }
+
+    @Test
+    void failedAsync()
+    {
+        CompletableFuture<String> future = createClient().sendForStringAsync(Request.buildGet().withPath("missing").build());
+        CompletionException e = assertThrows(CompletionException.class, future::join);
+        assertTrue(e.getCause() instanceof HttpRequestException);
+        assertEquals(404, ((HttpRequestException)e.getCause()).getStatusCode());
+    }
+
+    @Test
+    void retriedAsync()
+    {
+        assertEquals("Started", createClient().sendForStringAsync(Request.buildGet().withPath("starting").build()).join());
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void sharedClientCannotSupportCookies()
+    {
+        assertThrows(IllegalStateException.class,
+            () -> SimpleHttpClient.Config.builder().withSharedClient(true).withSupportCookies(true).build());
+    }
+}
@@ -0,0 +1,75 @@
+package org.knvvl.tools.generic.http;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local http server on a free port, for tests of clients
+ *
+ * <pre>
+ *     server = TestHttpServer.start().handle("/echo", exchange -&gt; TestHttpServer.respond(exchange, 200, "Hello"));
+ *     ...
+ *     server.close();
+ * </pre>
+ */
+public final class TestHttpServer implements AutoCloseable
+{
+    private final HttpServer server;
+
+    private TestHttpServer(HttpServer server)
+    {
+        this.server = server;
+    }
+
+    public static TestHttpServer start() throws IOException
+    {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.start();
+        return new TestHttpServer(server);
+    }
+
+    /**
+     * @param path Path that the handler answers, and all paths below it
+     * @return This server
+     */
+    public TestHttpServer handle(String path, HttpHandler handler)
+    {
+        server.createContext(path, handler);
+        return this;
+    }
+
+    /**
+     * @param path Like /api/
+     * @return Like http://localhost:12345/api/
+     */
+    public String getUrl(String path)
+    {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop(0);
+    }
+
+    /**
+     * Sends the body with the given status; set any headers before
+     */
+    public static void respond(HttpExchange exchange, int status, String body) throws IOException
+    {
+        byte[] bytes = body.getBytes(UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody())
+        {
+            outputStream.write(bytes);
+        }
+    }
+}